@@ -0,0 +1,107 @@
+package control;
+
+import java.util.List;
+
+import model.board.BitboardPosition;
+import model.board.IntSquareFactory;
+import model.board.Square;
+import model.board.UpdatablePosition;
+import model.board.generators.StandardChessPositionFactory;
+import model.movegen.MoveCode;
+import model.movegen.Perft;
+import model.pieces.FlyweightPiece;
+import model.pieces.PieceColor;
+import model.pieces.PieceType;
+
+/**
+ * A command line program counting the move tree of a position with Perft.
+ * Usage: PerftRunner depth [-divide] [-threads n] [-hash megabytes] [-fen "placement side"]
+ * where the position is given by the first two fields of a FEN string,
+ * e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w". The default is the standard setup.
+ * @author Sebastian Paaske Trholm
+ */
+public class PerftRunner {
+
+	/**
+	 * @param args depth followed by options, see the class description
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: PerftRunner depth [-divide] [-threads n] [-hash megabytes] [-fen \"placement side\"]");
+			System.exit(1);
+		}
+		
+		int depth = Integer.parseInt(args[0]),
+		    threads = 1,
+		    hashMegabytes = 0;
+		boolean divide = false;
+		UpdatablePosition position = new BitboardPosition(new StandardChessPositionFactory().position());
+		PieceColor toMove = PieceColor.WHITE;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("-divide"))
+				divide = true;
+			else if (args[i].equals("-threads"))
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-hash"))
+				hashMegabytes = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-fen")) {
+				String[] fields = args[++i].trim().split("\\s+");
+				position = parsePlacement(fields[0]);
+				toMove = fields.length > 1 && fields[1].equals("b") ? PieceColor.BLACK : PieceColor.WHITE;
+			} else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+		
+		Perft perft = new Perft(threads, hashMegabytes);
+		long start = System.nanoTime(),
+		     nodes = 0;
+		if (divide && depth > 0) {
+			List<Perft.Division> divisions = perft.divide(position, toMove, depth);
+			for (Perft.Division division : divisions) {
+				System.out.println(IntSquareFactory.square(MoveCode.from(division.move)) + "" 
+				                 + IntSquareFactory.square(MoveCode.to(division.move)) + ": " + division.nodes);
+				nodes += division.nodes;
+			}
+			System.out.println();
+			System.out.println("Moves: " + divisions.size());
+		} else
+			nodes = perft.count(position, toMove, depth);
+		long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+		
+		System.out.println("Nodes: " + nodes);
+		System.out.println("Time: " + millis + " ms (" + nodes * 1000 / millis + " nodes/s)");
+	}
+	
+	/**
+	 * Reads the piece placement field of a FEN string.
+	 * @param placement ranks from 8 down to 1 separated by '/', with pieces as letters
+	 *                  (upper case for white) and runs of empty squares as digits
+	 * @return a position with the pieces on it
+	 */
+	static UpdatablePosition parsePlacement(String placement) {
+		UpdatablePosition position = new BitboardPosition();
+		String[] ranks = placement.split("/");
+		if (ranks.length != Square.MAX_RANK)
+			throw new IllegalArgumentException("Expected " + Square.MAX_RANK + " ranks: " + placement);
+		for (int r = 0; r < ranks.length; r++) {
+			int rank = Square.MAX_RANK - r,
+			    file = 1;
+			for (char c : ranks[r].toCharArray()) {
+				if (Character.isDigit(c)) {
+					file += c - '0';
+					continue;
+				}
+				PieceType type = null;
+				for (PieceType t : PieceType.values())
+					if (t.c == Character.toUpperCase(c))
+						type = t;
+				if (type == null || file > Square.MAX_FILE)
+					throw new IllegalArgumentException("Bad rank: " + ranks[r]);
+				PieceColor color = Character.isUpperCase(c) ? PieceColor.WHITE : PieceColor.BLACK;
+				position.set((rank - 1) * Square.MAX_FILE + file - 1, FlyweightPiece.of(color, type));
+				file++;
+			}
+		}
+		return position;
+	}
+}
@@ -70,4 +70,12 @@ public interface Game {
 	 */
     public abstract int numMoves();
     
+	/**
+	 * A consistent, immutable snapshot of the game between two moves.
+	 * Unlike the other queries, this may be called from any thread while moves
+	 * are being executed; it never blocks and never sees a half-made move.
+	 * @return the snapshot taken after the last move was executed
+	 */
+    public abstract GameSnapshot snapshot();
+    
 }
\ No newline at end of file
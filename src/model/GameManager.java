@@ -47,6 +47,15 @@ public class GameManager extends Observable {
 		return black;
 	}
 	
+	/**
+	 * A consistent snapshot of the game, for threads other than the one making
+	 * the moves (analysis, spectators, metrics). Never blocks.
+	 * @return the snapshot taken after the last move was executed
+	 */
+	public GameSnapshot snapshot() {
+		return game.snapshot();
+	}
+	
 	/**
 	 * Execute a particular move and notify all observers
 	 * @param move The move to be executed, must be legal
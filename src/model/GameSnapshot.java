@@ -0,0 +1,114 @@
+package model;
+
+import model.board.DetailedMove;
+import model.board.PersistentPosition;
+import model.pieces.PieceColor;
+
+/**
+ * An immutable picture of a game, taken between two moves.
+ * The position is a PersistentPosition of flyweight pieces, so a snapshot can be
+ * read by any thread, for as long as it likes, while the game goes on.
+ * @author Sebastian Paaske Trholm
+ */
+public final class GameSnapshot {
+	private final PersistentPosition position;
+	private final PieceColor toMove, winner;
+	private final int numMoves;
+	private final DetailedMove lastMove;
+	private final boolean gameOver;
+	
+	/**
+	 * Creates a new GameSnapshot.
+	 * @param position the position of the game
+	 * @param toMove whose turn it is
+	 * @param numMoves the number of moves played so far
+	 * @param lastMove the last move played, null if none
+	 * @param gameOver whether the game is over
+	 * @param winner the winner, null if there is none (yet)
+	 * @require position != null && toMove != null
+	 * @require lastMove is not changed after the snapshot is taken
+	 */
+	public GameSnapshot(PersistentPosition position, PieceColor toMove, int numMoves,
+	                    DetailedMove lastMove, boolean gameOver, PieceColor winner) {
+		assert position != null && toMove != null;
+		this.position = position;
+		this.toMove = toMove;
+		this.numMoves = numMoves;
+		this.lastMove = lastMove;
+		this.gameOver = gameOver;
+		this.winner = winner;
+	}
+	
+	/**
+	 * Takes a snapshot of a game.
+	 * This reads the live state of the game, so it must not run concurrently with
+	 * moves being executed; games keep their own snapshot up to date instead.
+	 * @param game the game to take a snapshot of
+	 * @return a snapshot of the game as it is now
+	 */
+	public static GameSnapshot of(Game game) {
+		return new GameSnapshot(PersistentPosition.from(game.position()), game.toMove(), game.numMoves(),
+		                        game.lastMove(), game.gameOver(), game.gameOver() ? game.winner() : null);
+	}
+	
+	/**
+	 * The snapshot after playing a move from this one.
+	 * Only the squares touched by the move are copied; the rest is shared.
+	 * @param move the move played, as detailed by the game
+	 * @param gameOver whether the move ended the game
+	 * @param winner the winner after the move, null if there is none
+	 * @return the snapshot after the move
+	 */
+	public GameSnapshot after(DetailedMove move, boolean gameOver, PieceColor winner) {
+		return new GameSnapshot(position.play(move), toMove.other(), numMoves + 1,
+		                        move, gameOver, winner);
+	}
+	
+	/**
+	 * The position of the game
+	 * @return the position of the game, which never changes
+	 */
+	public PersistentPosition position() {
+		return position;
+	}
+	
+	/**
+	 * Whose turn it is
+	 * @return PieceColor.WHITE if it is White's turn, PieceColor.BLACK otherwise
+	 */
+	public PieceColor toMove() {
+		return toMove;
+	}
+	
+	/**
+	 * The number of moves played so far
+	 * @return the number of moves played so far
+	 */
+	public int numMoves() {
+		return numMoves;
+	}
+	
+	/**
+	 * Last move played
+	 * @return the last move played, null if no move had been played yet
+	 */
+	public DetailedMove lastMove() {
+		return lastMove;
+	}
+	
+	/**
+	 * Was the game over?
+	 * @return true iff the game was over
+	 */
+	public boolean gameOver() {
+		return gameOver;
+	}
+	
+	/**
+	 * Who won?
+	 * @return the winner (WHITE or BLACK), or null if there was none (yet)
+	 */
+	public PieceColor winner() {
+		return winner;
+	}
+}
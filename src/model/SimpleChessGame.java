@@ -1,13 +1,11 @@
 package model;
 
-import java.util.Collection;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
 
 import model.board.*;
 import model.board.generators.*;
+import model.movegen.Attacks;
 import model.pieces.*;
 
 /**
@@ -18,19 +16,37 @@ public class SimpleChessGame implements Game {
 	private UpdatablePosition position;
 	private LinkedList<DetailedMove> moveHistory;
 	private PieceColor toMove, winner;
-	private SquareFactory sqFactory;
 	private boolean gameOver;
+	private volatile GameSnapshot snapshot; // replaced, never changed, after each move
 	
 	/**
 	 * Creates a new SimpleChessGame.
 	 * @param startPositionFactory starting setup to use
 	 */
 	public SimpleChessGame(PositionFactory startPositionFactory) {
-		this.position = new ArrayPosition(startPositionFactory.position());
+		this(new ArrayPosition(startPositionFactory.position()));
+	}
+	
+	/**
+	 * Creates a new SimpleChessGame played on the given position.
+	 * The game takes ownership of the position and updates it as moves are made,
+	 * so any UpdatablePosition (e.g. a BitboardPosition) can back the game.
+	 * The game moves its pieces, so they must keep their own location: positions
+	 * holding FlyweightPieces, as made for searching, can't be played on.
+	 * @param startPosition starting position to play on
+	 * @throws IllegalArgumentException if the position holds a FlyweightPiece
+	 * @require startPosition != null
+	 */
+	public SimpleChessGame(UpdatablePosition startPosition) {
+		assert startPosition != null;
+		for (int index = 0; index < Square.NUM_SQUARES; index++)
+			if (startPosition.get(index) instanceof FlyweightPiece)
+				throw new IllegalArgumentException("Can't play on flyweight pieces: " + startPosition.get(index));
+		this.position = startPosition;
 		this.moveHistory = new LinkedList<DetailedMove>();
 		this.toMove = PieceColor.WHITE;
 		this.winner = null;
-		this.sqFactory = new IntSquareFactory();
+		this.snapshot = GameSnapshot.of(this);
 	}
 	
 	/**
@@ -41,14 +57,13 @@ public class SimpleChessGame implements Game {
 	@Override
 	public List<Move> allValidMoves() {
 		List<Move> validMoves = new LinkedList<Move>();
-		for (Square sq : sqFactory) {
-				Piece p = position.get(sq);
-				if (p == null || p.color() != toMove)
-					continue;
+		MobilityCache mobility = position.mobility();
+		for (long pieces = position.occupied(toMove); pieces != 0; pieces &= pieces - 1) {
+				int index = Long.numberOfTrailingZeros(pieces);
 				
-				Collection<Square> pieceTargets = p.validSquares(position);
-				for (Square target : pieceTargets)
-					validMoves.add(new Move(sq, target));
+				Square sq = IntSquareFactory.square(index);
+				for (long targets = mobility.targets(index); targets != 0; targets &= targets - 1)
+					validMoves.add(new Move(sq, IntSquareFactory.square(Long.numberOfTrailingZeros(targets))));
 		}
 		
 		return validMoves;
@@ -74,24 +89,13 @@ public class SimpleChessGame implements Game {
 		if ((p.type() == PieceType.PAWN)
 		&&  (p.location().rank() == (p.color() == PieceColor.BLACK ? 1 : Square.MAX_RANK) )) {
 			moveDetail.setPromotion(PieceType.QUEEN);
-			p.type(PieceType.QUEEN);	
+			position.set(p.location(), null); // lift the pawn so the position can account
+			p.type(PieceType.QUEEN);	      // for the change of type
+			position.set(p.location(), p);
 		}
 		
 		// Check if opponent is in check
-		List<Square> oppKings = new LinkedList<Square>();
-		Set<Square> coveredSquares = new HashSet<Square>();
-		for (Square sq : sqFactory) {
-			Piece piece = position.get(sq);
-			if (piece == null)
-				continue;
-			
-			if (piece.color() == toMove) {
-				coveredSquares.addAll(piece.validSquares(position));
-			} else if (piece.type() == PieceType.KING)
-				oppKings.add(piece.location()); 
-		}
-		
-		if (coveredSquares.removeAll(oppKings))
+		if (Attacks.inCheck(position, toMove.other()))
 			moveDetail.addFlags(DetailedMove.FLAG_CHECK);
 		
 		
@@ -108,6 +112,7 @@ public class SimpleChessGame implements Game {
 			gameOver = true;
 		
 		toMove = toMove.other();
+		snapshot = snapshot.after(moveDetail, gameOver, winner);
 	}
 
 	@Override
@@ -120,7 +125,8 @@ public class SimpleChessGame implements Game {
 		Piece movingPiece = position.get(move.from);
 		return movingPiece != null
 		    && movingPiece.color() == toMove
-		    && movingPiece.validSquares(position).contains(move.to);
+		    && position.mobility().canMoveTo(IntSquareFactory.index(move.from), 
+		                                     IntSquareFactory.index(move.to));
 	}
 
 	@Override
@@ -138,6 +144,11 @@ public class SimpleChessGame implements Game {
 		return position;
 	}
 
+	@Override
+	public GameSnapshot snapshot() {
+		return snapshot;
+	}
+
 	@Override
 	public PieceColor toMove() {
 		return toMove;
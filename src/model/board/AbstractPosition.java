@@ -0,0 +1,189 @@
+package model.board;
+
+import java.util.Arrays;
+
+import model.pieces.FlyweightPiece;
+import model.pieces.Piece;
+import model.pieces.PieceColor;
+import model.pieces.PieceType;
+
+/**
+ * An abstract implementation of the UpdatablePosition interface.
+ * Subclasses only store pieces by square index; lookups by square or by
+ * file and rank are translated here, and off-board coordinates are answered
+ * without touching the storage.
+ * The set of squares each color occupies and the Zobrist key of the pieces are
+ * kept up to date as pieces are placed, and moves can be made and taken back
+ * through an undo stack. Once asked for, a MobilityCache is kept up to date as well.
+ * @author Sebastian Paaske Trholm
+ */
+public abstract class AbstractPosition implements UpdatablePosition {
+	private final long[] colorMasks = new long[PieceColor.values().length];
+	private long key; // Zobrist key of the pieces
+	private MobilityCache mobility; // null until asked for
+	
+	// The undo stack, one entry per move made and not yet taken back.
+	// Everything else a move changes is restored by placing the pieces back.
+	private int[] undoFrom = new int[INITIAL_UNDO_SIZE],
+	              undoTo = new int[INITIAL_UNDO_SIZE];
+	private Piece[] undoCaptured = new Piece[INITIAL_UNDO_SIZE];
+	private boolean[] undoPromoted = new boolean[INITIAL_UNDO_SIZE];
+	private int undoSize;
+	
+	private static final int INITIAL_UNDO_SIZE = 64;
+
+	/**
+	 * Whether the coordinates denote a square on the board.
+	 * @param file any file
+	 * @param rank any rank
+	 * @return true if file in [1..MAX_FILE] and rank in [1..MAX_RANK]
+	 */
+	protected static boolean onBoard(int file, int rank) {
+		return 1 <= file && file <= Square.MAX_FILE && 1 <= rank && rank <= Square.MAX_RANK;
+	}
+
+	/**
+	 * Stores a piece on a square, without any bookkeeping.
+	 * @param index index of the square
+	 * @param piece piece to store, null to empty the square
+	 */
+	protected abstract void store(int index, Piece piece);
+	
+	/**
+	 * Places a piece on a square, keeping the occupancy of both colors up to date.
+	 * Unlike set(int, Piece) this cannot be overridden, so constructors can use it.
+	 * @param index index of the square
+	 * @param piece piece to place, null to empty the square
+	 */
+	protected final void place(int index, Piece piece) {
+		long bit = 1L << index;
+		Piece old = get(index);
+		if (old != null)
+			colorMasks[old.color().ordinal()] &= ~bit;
+		if (piece != null)
+			colorMasks[piece.color().ordinal()] |= bit;
+		key ^= Zobrist.piece(old, index) ^ Zobrist.piece(piece, index);
+		store(index, piece);
+		if (mobility != null)
+			mobility.changed(index);
+	}
+	
+	/**
+	 * Copies the occupancy and key of another position, for subclasses that copy its storage wholesale.
+	 * @param other position whose storage was copied
+	 */
+	protected final void copyOccupancy(AbstractPosition other) {
+		System.arraycopy(other.colorMasks, 0, colorMasks, 0, colorMasks.length);
+		key = other.key;
+		if (mobility != null)
+			mobility.clear();
+	}
+	
+	@Override
+	public MobilityCache mobility() {
+		if (mobility == null)
+			mobility = new MobilityCache(this);
+		return mobility;
+	}
+	
+	@Override
+	public long hashKey(PieceColor toMove) {
+		return key ^ Zobrist.toMove(toMove);
+	}
+	
+	@Override
+	public long occupied(PieceColor color) {
+		return colorMasks[color.ordinal()];
+	}
+	
+	/**
+	 * @return the locations of all pieces, as a set of square indices
+	 */
+	public long occupied() {
+		return colorMasks[0] | colorMasks[1];
+	}
+	
+	@Override
+	public void set(int index, Piece piece) {
+		place(index, piece);
+	}
+	
+	@Override
+	public void makeMove(Move move) {
+		makeMove(IntSquareFactory.index(move.from), IntSquareFactory.index(move.to));
+	}
+	
+	@Override
+	public void makeMove(int from, int to) {
+		Piece mover = get(from);
+		assert mover != null && from != to;
+		IntSquare target = IntSquareFactory.square(to);
+		boolean promotes = mover.type() == PieceType.PAWN
+		                && target.rank() == (mover.color() == PieceColor.BLACK ? 1 : Square.MAX_RANK);
+		
+		if (undoSize == undoFrom.length)
+			growUndoStack();
+		undoFrom[undoSize] = from;
+		undoTo[undoSize] = to;
+		undoCaptured[undoSize] = get(to);
+		undoPromoted[undoSize] = promotes;
+		undoSize++;
+		
+		set(from, null);
+		if (promotes) // while the pawn is off the board, so the bookkeeping sees the change
+			mover = FlyweightPiece.withType(mover, PieceType.QUEEN);
+		FlyweightPiece.locate(mover, target);
+		set(to, mover);
+	}
+	
+	@Override
+	public void unmakeMove() {
+		assert undoSize > 0 : "No move to take back";
+		undoSize--;
+		int from = undoFrom[undoSize],
+		    to = undoTo[undoSize];
+		Piece mover = get(to);
+		
+		set(to, undoCaptured[undoSize]);
+		undoCaptured[undoSize] = null; // don't keep captured pieces alive
+		if (undoPromoted[undoSize])
+			mover = FlyweightPiece.withType(mover, PieceType.PAWN);
+		FlyweightPiece.locate(mover, IntSquareFactory.square(from));
+		set(from, mover);
+	}
+	
+	/**
+	 * Doubles the capacity of the undo stack.
+	 */
+	private void growUndoStack() {
+		int size = undoFrom.length * 2;
+		undoFrom = Arrays.copyOf(undoFrom, size);
+		undoTo = Arrays.copyOf(undoTo, size);
+		undoCaptured = Arrays.copyOf(undoCaptured, size);
+		undoPromoted = Arrays.copyOf(undoPromoted, size);
+	}
+	
+	@Override
+	public Piece get(Square square) {
+		return get(square.file(), square.rank());
+	}
+
+	@Override
+	public Piece get(int file, int rank) {
+		if (!onBoard(file, rank))
+			return null;
+		return get(IntSquare.fileRankToPosition(file, rank));
+	}
+
+	@Override
+	public void set(Square square, Piece piece) {
+		set(square.file(), square.rank(), piece);
+	}
+
+	@Override
+	public void set(int file, int rank, Piece piece) {
+		if (onBoard(file, rank))
+			set(IntSquare.fileRankToPosition(file, rank), piece);
+	}
+
+}
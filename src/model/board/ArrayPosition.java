@@ -8,8 +8,8 @@ import model.pieces.Piece;
  * Represents the positions of pieces on a chess board, storing them in an array.
  * @author Sebastian Paaske Trholm
  */
-public class ArrayPosition implements UpdatablePosition {
-	private Piece[][] pieces; 
+public class ArrayPosition extends AbstractPosition {
+	private Piece[] pieces; // indexed by IntSquare.position()
 	
 	/**
 	 * Creates a new ArrayPosition.
@@ -17,11 +17,11 @@ public class ArrayPosition implements UpdatablePosition {
 	 * @param pieces array of Pieces to put on the board
 	 */
 	public ArrayPosition(Piece[] pieces) {
-		this.pieces = new Piece[Square.MAX_FILE][Square.MAX_RANK];
+		this.pieces = new Piece[Square.NUM_SQUARES];
 		for (Piece piece : pieces) {
-			Square sq = piece.location();
-			assert this.pieces[sq.file()-1][sq.rank()-1] == null;
-			this.pieces[sq.file()-1][sq.rank()-1] = piece; 
+			int index = IntSquareFactory.index(piece.location());
+			assert this.pieces[index] == null;
+			place(index, piece); 
 		}
 	}
 	
@@ -42,61 +42,30 @@ public class ArrayPosition implements UpdatablePosition {
 	 * @param position Position to copy
 	 */
 	public ArrayPosition(Position position) {
-		if (position instanceof ArrayPosition)
-			this.pieces = ((ArrayPosition)position).pieces;
-		else {
-			this.pieces = new Piece[Square.MAX_FILE][Square.MAX_RANK];
-			SquareFactory sf = new IntSquareFactory();
-			for (Square sq : sf) {
-				Piece p = position.get(sq);
-				if (p != null)
-					this.pieces[sq.file()-1][sq.rank()-1] = p; 
-			}
-		}
-	}
-	
-	@Override
-	public Piece get(Square square) {
-		try {
-			return pieces[square.file()-1][square.rank()-1];
-		} catch (ArrayIndexOutOfBoundsException e) {
-			return null;
-		}
+		this.pieces = new Piece[Square.NUM_SQUARES];
+		for (int index = 0; index < Square.NUM_SQUARES; index++)
+			place(index, position.get(index));
 	}
 	
 	@Override
-	public Piece get(int file, int rank) {
-		try {
-			return pieces[file-1][rank-1];
-		} catch (ArrayIndexOutOfBoundsException e) {
-			return null;
-		}
+	public Piece get(int index) {
+		return pieces[index];
 	}
 
 	@Override
-	public void set(Square square, Piece piece) {
-		try {
-			pieces[square.file()-1][square.rank()-1] = piece;
-		} catch (ArrayIndexOutOfBoundsException e) { }
-	}
-
-	@Override
-	public void set(int file, int rank, Piece piece) {
-		try {
-			pieces[file-1][rank-1] = piece;
-		} catch (ArrayIndexOutOfBoundsException e) { }
+	protected void store(int index, Piece piece) {
+		pieces[index] = piece;
 	}
 
 	@Override
 	public Position deepClone() {
 		UpdatablePosition position = new ArrayPosition();
-		for (Piece[] pieceRow : pieces)
-			for (Piece piece : pieceRow) {
-				if (piece == null)
-					continue;
-				
-				position.set(piece.location(), (Piece)piece.clone());
-			}
+		for (int index = 0; index < Square.NUM_SQUARES; index++) {
+			if (pieces[index] == null)
+				continue;
+			
+			position.set(index, (Piece)pieces[index].clone());
+		}
 		
 		return position;
 	}
@@ -0,0 +1,129 @@
+package model.board;
+
+import java.util.List;
+
+import model.pieces.Piece;
+import model.pieces.PieceColor;
+import model.pieces.PieceType;
+
+/**
+ * Represents the positions of pieces on a chess board, storing them in bitboards.
+ * Each (color, type) pair has a 64-bit occupancy word, where bit n is set iff a
+ * piece of that kind stands on the square with IntSquare position n.
+ * The occupancy of each color is kept by AbstractPosition.
+ * @author Sebastian Paaske Trholm
+ */
+public class BitboardPosition extends AbstractPosition {
+	private Piece[] pieces;      // piece objects, indexed by square position
+	private long[][] boards;     // occupancy per [color][type]
+
+	/**
+	 * Creates a new BitboardPosition.
+	 * Must not contain two or more pieces that share a square.
+	 * @param pieces array of Pieces to put on the board
+	 */
+	public BitboardPosition(Piece[] pieces) {
+		this.pieces = new Piece[Square.NUM_SQUARES];
+		this.boards = new long[PieceColor.values().length][PieceType.values().length];
+		for (Piece piece : pieces) {
+			assert get(piece.location()) == null;
+			set(piece.location(), piece);
+		}
+	}
+
+	/**
+	 * Creates a new empty BitboardPosition.
+	 */
+	public BitboardPosition() { this(new Piece[]{}); }
+
+	/**
+	 * Creates a new BitboardPosition.
+	 * Must not contain two or more pieces that share a square.
+	 * @param pieces list of Pieces to put on the board
+	 */
+	public BitboardPosition(List<Piece> pieces) { this(pieces.toArray(new Piece[]{})); }
+
+	/**
+	 * Creates a new BitboardPosition that contains the same elements as the input.
+	 * @param position Position to copy
+	 */
+	public BitboardPosition(Position position) {
+		this();
+		if (position instanceof BitboardPosition) {
+			BitboardPosition other = (BitboardPosition)position;
+			System.arraycopy(other.pieces, 0, pieces, 0, Square.NUM_SQUARES);
+			for (int color = 0; color < boards.length; color++)
+				System.arraycopy(other.boards[color], 0, boards[color], 0, boards[color].length);
+			copyOccupancy(other);
+		} else {
+			for (int index = 0; index < Square.NUM_SQUARES; index++) {
+				Piece p = position.get(index);
+				if (p != null)
+					place(index, p);
+			}
+		}
+	}
+
+	/**
+	 * Returns the bit representing the given square.
+	 * @param file file of the square
+	 * @param rank rank of the square
+	 * @return a word with exactly the bit for the square set
+	 * @require new IntSquareFactory().isSquare(file, rank)
+	 */
+	public static long bit(int file, int rank) {
+		return 1L << ((rank - 1) * Square.MAX_FILE + file - 1);
+	}
+
+	/**
+	 * @param color color to look up
+	 * @param type type to look up
+	 * @return occupancy of all pieces of the given color and type
+	 */
+	public long pieces(PieceColor color, PieceType type) {
+		return boards[color.ordinal()][type.ordinal()];
+	}
+
+	/**
+	 * @param color color to count
+	 * @param type type to count
+	 * @return the number of pieces of the given color and type on the board
+	 */
+	public int count(PieceColor color, PieceType type) {
+		return Long.bitCount(boards[color.ordinal()][type.ordinal()]);
+	}
+
+	@Override
+	public Piece get(int index) {
+		return pieces[index];
+	}
+
+	@Override
+	protected void store(int index, Piece piece) {
+		long bit = 1L << index;
+
+		Piece old = pieces[index];
+		if (old != null) {
+			// The old piece may have changed type since it was placed (promotion),
+			// so clear the square from every board of its color.
+			long[] colorBoards = boards[old.color().ordinal()];
+			for (int type = 0; type < colorBoards.length; type++)
+				colorBoards[type] &= ~bit;
+		}
+
+		pieces[index] = piece;
+		if (piece != null)
+			boards[piece.color().ordinal()][piece.type().ordinal()] |= bit;
+	}
+
+	@Override
+	public Position deepClone() {
+		BitboardPosition position = new BitboardPosition(this);
+		for (int index = 0; index < Square.NUM_SQUARES; index++)
+			if (position.pieces[index] != null)
+				position.pieces[index] = (Piece)position.pieces[index].clone();
+
+		return position;
+	}
+
+}
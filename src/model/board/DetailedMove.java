@@ -58,22 +58,26 @@ public class DetailedMove extends Move {
 		this.pieceType = mover.type();
 		
 		// We need to make sure if the piece location is ambiguous in Algebraic Chess Notation
-		IntSquareFactory sqFactory = new IntSquareFactory();
 		boolean rankClash = false, fileClash = false, ambiguity = false;
+		int fromIndex = IntSquareFactory.index(from),
+		    toIndex = IntSquareFactory.index(to);
+		MobilityCache mobility = startingBoard instanceof UpdatablePosition  // use the game's cache
+		                       ? ((UpdatablePosition)startingBoard).mobility() : null;
 		
-		for (Square sq : sqFactory) {
-			if (sq.equals(from))
+		for (long pieces = startingBoard.occupied(mover.color()); pieces != 0; pieces &= pieces - 1) {
+			int index = Long.numberOfTrailingZeros(pieces); // we are looking for our other pieces
+			if (index == fromIndex)
 				continue; // skip the piece itself
-			Piece p = startingBoard.get(sq);
-			if ((p == null) 
-			||  (p.color() != mover.color())       // we are looking for our other pieces
-		    ||  (p.type() != mover.type())         // of the same type
-		    ||  (!p.canMoveTo(startingBoard, to))) // that can move to the same spot
+			Piece p = startingBoard.get(index);
+			IntSquare sq = IntSquareFactory.square(index);
+			if ((p.type() != mover.type())             // of the same type
+		    ||  (mobility != null ? !mobility.canMoveTo(index, toIndex)
+		                          : !p.canMoveTo(startingBoard, sq, to))) // that can move to the same spot
 				continue;
 			
 			ambiguity = true;
-			rankClash = rankClash || (p.location().rank() == from.rank());
-			fileClash = fileClash || (p.location().file() == from.file());
+			rankClash = rankClash || (sq.rank() == from.rank());
+			fileClash = fileClash || (sq.file() == from.file());
 		}
 		
 		if (!ambiguity)
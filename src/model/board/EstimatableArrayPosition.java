@@ -41,15 +41,9 @@ public class EstimatableArrayPosition extends ArrayPosition {
 	}
 	
 	@Override
-	public void set(Square square, Piece piece) {
-		estimate += estimator.estimateChange(this, square, piece);
-		super.set(square, piece);
-	}
-
-	@Override
-	public void set(int file, int rank, Piece piece) {
-		estimate += estimator.estimateChange(this, file, rank, piece);
-		super.set(file, rank, piece);
+	public void set(int index, Piece piece) {
+		estimate += estimator.estimateChange(this, IntSquareFactory.square(index), piece);
+		super.set(index, piece);
 	}
 	
 	@Override
@@ -18,7 +18,8 @@ public class IntSquare implements Square {
 		return (rank - 1) * Square.MAX_FILE + file - 1;
 	}
 
-	private int position;
+	private final int position, file, rank;
+	private IntSquare[] neighbours; // filled in by IntSquareFactory once all squares exist
 
 	/**
 	 * Creates an IntSquare based on file and rank.
@@ -50,6 +51,8 @@ public class IntSquare implements Square {
 	IntSquare(int file, int rank) {
 		assert new IntSquareFactory().isSquare(file, rank);
 		this.position = fileRankToPosition(file, rank);
+		this.file = file;
+		this.rank = rank;
 	}
 
 	/**
@@ -79,7 +82,7 @@ public class IntSquare implements Square {
 
 	@Override
 	public int file() {
-		return this.position % Square.MAX_FILE + 1;
+		return file;
 	}
 
 	@Override
@@ -97,7 +100,38 @@ public class IntSquare implements Square {
 
 	@Override
 	public int rank() {
-		return (int)(this.position / Square.MAX_FILE) + 1;
+		return rank;
+	}
+	
+	/**
+	 * Returns the square at the given offset from this one.
+	 * @param df file offset
+	 * @param dr rank offset
+	 * @return the canonical square at the offset, null if it is off the board
+	 */
+	public IntSquare offset(int df, int dr) {
+		int f = file + df,
+		    r = rank + dr;
+		if (f < 1 || f > Square.MAX_FILE || r < 1 || r > Square.MAX_RANK)
+			return null;
+		return IntSquareFactory.square(fileRankToPosition(f, r));
+	}
+	
+	/**
+	 * The squares adjacent to this one, orthogonally or diagonally.
+	 * The array is shared and must not be modified.
+	 * @return the canonical neighbouring squares
+	 */
+	public IntSquare[] neighbours() {
+		return neighbours;
+	}
+	
+	/**
+	 * Sets the neighbouring squares of this square.
+	 * @param neighbours the canonical neighbouring squares
+	 */
+	void neighbours(IntSquare[] neighbours) {
+		this.neighbours = neighbours;
 	}
 
 	@Override
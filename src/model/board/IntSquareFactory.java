@@ -8,9 +8,64 @@ import java.util.NoSuchElementException;
  * @author Sebastian Paaske Trholm
  */
 public class IntSquareFactory implements SquareFactory {
+	/**
+	 * The canonical squares, indexed by IntSquare.position().
+	 */
+	private static final IntSquare[] SQUARES = new IntSquare[Square.NUM_SQUARES];
+	
+	static {
+		for (int rank = 1; rank <= Square.MAX_RANK; rank++)
+			for (int file = 1; file <= Square.MAX_FILE; file++)
+				SQUARES[IntSquare.fileRankToPosition(file, rank)] = new IntSquare(file, rank);
+		
+		for (IntSquare sq : SQUARES) {
+			IntSquare[] around = new IntSquare[8];
+			int n = 0;
+			for (int dr = -1; dr <= 1; dr++)
+				for (int df = -1; df <= 1; df++)
+					if ((df != 0 || dr != 0) && (sq.offset(df, dr) != null))
+						around[n++] = sq.offset(df, dr);
+			
+			IntSquare[] neighbours = new IntSquare[n];
+			System.arraycopy(around, 0, neighbours, 0, n);
+			sq.neighbours(neighbours);
+		}
+	}
+	
+	/**
+	 * Returns the canonical square with the given index.
+	 * @param index index of the square, as given by IntSquare.position()
+	 * @return the square
+	 * @require 0 <= index && index < Square.NUM_SQUARES
+	 * @ensure result.position() == index
+	 */
+	public static IntSquare square(int index) {
+		return SQUARES[index];
+	}
+	
+	/**
+	 * Returns the index a square has in the canonical table.
+	 * @param square any square
+	 * @return the index of the square
+	 * @ensure square(result).equals(square)
+	 */
+	public static int index(Square square) {
+		if (square instanceof IntSquare)
+			return ((IntSquare)square).position();
+		return IntSquare.fileRankToPosition(square.file(), square.rank());
+	}
+	
+	/**
+	 * The shared square of a file and rank, looked up rather than created.
+	 * @param file The file of the square
+	 * @param rank The rank of the square
+	 * @return the square
+	 * @require 1 <= file && file <= Square.MAX_FILE && 1 <= rank && rank <= Square.MAX_RANK
+	 */
 	@Override
 	public Square create(int file, int rank) {
-		return new IntSquare(file, rank);
+		assert 1 <= file && file <= Square.MAX_FILE && 1 <= rank && rank <= Square.MAX_RANK;
+		return SQUARES[IntSquare.fileRankToPosition(file, rank)];
 	}
 
 	/**
@@ -25,7 +80,7 @@ public class IntSquareFactory implements SquareFactory {
 	 * @ensure this.rank() = rank
 	 */
 	public Square create(char file, int rank) {		
-		return new IntSquare(file, rank);
+		return create(Character.toLowerCase(file) - 'a' + 1, rank);
 	}
 	
 	/**
@@ -41,7 +96,7 @@ public class IntSquareFactory implements SquareFactory {
 	 * @ensure this.rank() = Integer.parseInt(pos.substring(1))
 	 */
 	public Square create(String pos) {		
-		return new IntSquare(pos);
+		return create(pos.charAt(0), Integer.parseInt(pos.substring(1)));
 	}
 
 	@Override
@@ -53,12 +108,11 @@ public class IntSquareFactory implements SquareFactory {
 	@Override
 	public Iterator<Square> iterator() {
 		return new Iterator<Square>() {
-			private int file = 0, // store file one below actual value
-			            rank = 1; // so we can do modulo magic more easily on it
+			private int index = 0; // squares are stored file-first, so this is the iteration order
 			
 			@Override
 			public boolean hasNext() {
-				return isSquare(file+1, rank);
+				return index < Square.NUM_SQUARES;
 			}
 
 			@Override
@@ -66,13 +120,7 @@ public class IntSquareFactory implements SquareFactory {
 				if (!hasNext())
 					throw new NoSuchElementException();
 				
-				Square nextSquare = new IntSquare(file+1, rank);
-				
-				file = (file+1)%Square.MAX_FILE;
-				if (file == 0) // file wraparound, increase rank
-					rank++;
-				
-				return nextSquare;
+				return SQUARES[index++];
 			}
 
 			@Override
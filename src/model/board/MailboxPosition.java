@@ -0,0 +1,162 @@
+package model.board;
+
+import java.util.Arrays;
+import java.util.List;
+
+import model.pieces.Piece;
+
+/**
+ * Represents the positions of pieces on a chess board, storing them in a 10x12 mailbox.
+ * The board is surrounded by a border of sentinel cells (two ranks above and below,
+ * one file to each side), so stepping from any square by a king, knight or pawn offset
+ * lands in the array, and walking a ray stops on a sentinel instead of needing a
+ * bounds check.
+ * @author Sebastian Paaske Trholm
+ */
+public class MailboxPosition extends AbstractPosition {
+	/**
+	 * Upper bound on the number of cells a single piece can target.
+	 */
+	public static final int MAX_TARGETS = Square.NUM_SQUARES;
+
+	/**
+	 * Width of the mailbox, in cells.
+	 */
+	public static final int WIDTH = Square.MAX_FILE + 2;
+
+	/**
+	 * Number of cells in the mailbox.
+	 */
+	public static final int CELLS = WIDTH * (Square.MAX_RANK + 4);
+
+	/**
+	 * Sentinel value of TO_INDEX for cells off the board.
+	 */
+	public static final int OFF_BOARD = -1;
+
+	private static final int[] TO_INDEX = new int[CELLS];   // mailbox cell -> square index
+	private static final int[] TO_CELL = new int[Square.NUM_SQUARES]; // square index -> cell
+
+	static {
+		Arrays.fill(TO_INDEX, OFF_BOARD);
+		for (int rank = 1; rank <= Square.MAX_RANK; rank++)
+			for (int file = 1; file <= Square.MAX_FILE; file++) {
+				int index = IntSquare.fileRankToPosition(file, rank),
+				    cell = (rank + 1) * WIDTH + file;
+				TO_INDEX[cell] = index;
+				TO_CELL[index] = cell;
+			}
+	}
+
+	private Piece[] cells;
+
+	/**
+	 * Creates a new MailboxPosition.
+	 * Must not contain two or more pieces that share a square.
+	 * @param pieces array of Pieces to put on the board
+	 */
+	public MailboxPosition(Piece[] pieces) {
+		this.cells = new Piece[CELLS];
+		for (Piece piece : pieces) {
+			assert get(piece.location()) == null;
+			set(piece.location(), piece);
+		}
+	}
+
+	/**
+	 * Creates a new empty MailboxPosition.
+	 */
+	public MailboxPosition() { this(new Piece[]{}); }
+
+	/**
+	 * Creates a new MailboxPosition.
+	 * Must not contain two or more pieces that share a square.
+	 * @param pieces list of Pieces to put on the board
+	 */
+	public MailboxPosition(List<Piece> pieces) { this(pieces.toArray(new Piece[]{})); }
+
+	/**
+	 * Creates a new MailboxPosition that contains the same elements as the input.
+	 * @param position Position to copy
+	 */
+	public MailboxPosition(Position position) {
+		this();
+		for (int index = 0; index < Square.NUM_SQUARES; index++)
+			place(index, position.get(index));
+	}
+
+	/**
+	 * The mailbox step corresponding to a coordinate offset.
+	 * @param df file offset
+	 * @param dr rank offset
+	 * @return the number of cells to step
+	 */
+	public static int step(int df, int dr) {
+		return dr * WIDTH + df;
+	}
+
+	/**
+	 * @param index square index, as given by IntSquare.position()
+	 * @return the mailbox cell of the square
+	 */
+	public static int cell(int index) {
+		return TO_CELL[index];
+	}
+
+	/**
+	 * @param cell mailbox cell
+	 * @return the square index of the cell, or OFF_BOARD for sentinel cells
+	 */
+	public static int index(int cell) {
+		return TO_INDEX[cell];
+	}
+
+	/**
+	 * @param cell mailbox cell
+	 * @return the canonical square of the cell
+	 * @require !offBoard(cell)
+	 */
+	public static IntSquare square(int cell) {
+		return IntSquareFactory.square(TO_INDEX[cell]);
+	}
+
+	/**
+	 * @param cell mailbox cell
+	 * @return true iff the cell is a sentinel
+	 */
+	public static boolean offBoard(int cell) {
+		return TO_INDEX[cell] == OFF_BOARD;
+	}
+
+	/**
+	 * The piece in a mailbox cell.
+	 * @param cell mailbox cell
+	 * @return the piece in the cell, null if it is empty or a sentinel
+	 */
+	public Piece cellPiece(int cell) {
+		return cells[cell];
+	}
+
+	@Override
+	public Piece get(int index) {
+		return cells[TO_CELL[index]];
+	}
+
+	@Override
+	protected void store(int index, Piece piece) {
+		cells[TO_CELL[index]] = piece;
+	}
+
+	@Override
+	public Position deepClone() {
+		MailboxPosition position = new MailboxPosition();
+		for (int index = 0; index < Square.NUM_SQUARES; index++) {
+			Piece p = get(index);
+			if (p != null)
+				position.place(index, (Piece)p.clone());
+		}
+
+		return position;
+	}
+
+}
@@ -0,0 +1,118 @@
+package model.board;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import model.pieces.Piece;
+import model.pieces.PieceColor;
+import model.pieces.types.MovementPattern;
+
+/**
+ * A cache of the squares each piece of a position can move to, attached to the position.
+ * The targets of a piece are computed on first use, along with the set of squares
+ * they depend on (see MovementPattern.dependencies). Whenever a square changes, only
+ * the pieces depending on that square, and the piece on it, are forgotten; every
+ * other piece keeps its targets. As a move changes two squares, repeated queries
+ * over a game or along a line of play recompute the targets of a handful of pieces
+ * per move.
+ *
+ * The targets are those the pattern of each piece's type gives, as with GenericPiece.
+ * The position must report every change through place(int, Piece), which all
+ * AbstractPositions do, and pieces must not change type while on the board.
+ * @author Sebastian Paaske Trholm
+ */
+public final class MobilityCache {
+	private final Position position;
+	private final long[] targets = new long[Square.NUM_SQUARES];      // targets of the piece on each square
+	private final long[] dependencies = new long[Square.NUM_SQUARES]; // squares those targets depend on
+	private final long[] dependents = new long[Square.NUM_SQUARES];   // cached squares depending on each square
+	private long cached; // squares whose targets are known
+	
+	/**
+	 * Creates an empty cache for a position.
+	 * @param position position whose changes will be reported through changed(int)
+	 */
+	MobilityCache(Position position) {
+		this.position = position;
+	}
+	
+	/**
+	 * The squares the piece on a square can move to.
+	 * @param from index of the square, as given by IntSquare.position()
+	 * @return the target squares, one bit per square index; 0 if the square is empty
+	 * @require 0 <= from && from < Square.NUM_SQUARES
+	 */
+	public long targets(int from) {
+		if ((cached & 1L << from) == 0)
+			compute(from);
+		return targets[from];
+	}
+	
+	/**
+	 * Whether the piece on a square can move to another square.
+	 * @param from index of the square of the piece
+	 * @param to index of the target square
+	 * @return true if to is among the targets of the piece on from
+	 */
+	public boolean canMoveTo(int from, int to) {
+		return (targets(from) & 1L << to) != 0;
+	}
+	
+	/**
+	 * The squares the piece on a square can move to, as squares.
+	 * @param from index of the square, as given by IntSquare.position()
+	 * @return a new collection of the target squares
+	 */
+	public Collection<Square> validSquares(int from) {
+		long squares = targets(from);
+		Collection<Square> valid = new ArrayList<Square>(Long.bitCount(squares));
+		for (; squares != 0; squares &= squares - 1)
+			valid.add(IntSquareFactory.square(Long.numberOfTrailingZeros(squares)));
+		return valid;
+	}
+	
+	/**
+	 * Forgets the targets of every piece that may have changed with a square.
+	 * @param index index of the square that changed
+	 */
+	void changed(int index) {
+		long stale = (dependents[index] | 1L << index) & cached;
+		for (; stale != 0; stale &= stale - 1)
+			forget(Long.numberOfTrailingZeros(stale));
+	}
+	
+	/**
+	 * Forgets the targets of all pieces.
+	 */
+	public void clear() {
+		for (long squares = cached; squares != 0; squares &= squares - 1)
+			forget(Long.numberOfTrailingZeros(squares));
+	}
+	
+	private void compute(int from) {
+		long bit = 1L << from,
+		     reached = 0,
+		     depends = bit;
+		Piece piece = position.get(from);
+		if (piece != null) {
+			PieceColor color = piece.color();
+			MovementPattern pattern = piece.type().pattern;
+			long own = position.occupied(color),
+			     occupied = own | position.occupied(color.other());
+			reached = pattern.reach(color, from, occupied) & ~own; // can't move onto own pieces
+			depends |= pattern.dependencies(color, from, occupied);
+		}
+		targets[from] = reached;
+		dependencies[from] = depends;
+		for (long squares = depends; squares != 0; squares &= squares - 1)
+			dependents[Long.numberOfTrailingZeros(squares)] |= bit;
+		cached |= bit;
+	}
+	
+	private void forget(int from) {
+		long bit = 1L << from;
+		for (long squares = dependencies[from]; squares != 0; squares &= squares - 1)
+			dependents[Long.numberOfTrailingZeros(squares)] &= ~bit;
+		cached &= ~bit;
+	}
+}
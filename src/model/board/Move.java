@@ -32,7 +32,8 @@ public class Move {
 	@Override
 	public boolean equals(Object obj) {
 		if (obj instanceof Move) {
-			this.toString().equals(obj.toString());
+			Move other = (Move) obj;
+			return from.equals(other.from) && to.equals(other.to);
 		}
 		return false;
 	}
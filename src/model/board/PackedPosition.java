@@ -0,0 +1,201 @@
+package model.board;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import model.pieces.GenericPiece;
+import model.pieces.Piece;
+import model.pieces.PieceColor;
+import model.pieces.PieceType;
+
+/**
+ * A compact, canonical encoding of a position together with the side to move.
+ * Every square is a nibble: 0 for an empty square, otherwise the ordinal of the
+ * piece type plus one, with bit 3 set for black pieces. The 64 nibbles are packed
+ * into four longs (32 bytes), sixteen squares each, in IntSquare.position() order.
+ *
+ * Two PackedPositions are equal iff they have the same pieces on the same squares
+ * and the same side to move, so they can be used directly as keys.
+ * @author Sebastian Paaske Trholm
+ */
+public final class PackedPosition {
+	/**
+	 * Number of bytes written by write(DataOutput).
+	 */
+	public static final int BYTES = 4 * 8 + 1;
+
+	private static final int SQUARES_PER_WORD = 16;
+	private static final int BLACK_BIT = 0x8;
+	private static final PieceType[] TYPES = PieceType.values();
+
+	private final long[] words;
+	private final PieceColor toMove;
+
+	private PackedPosition(long[] words, PieceColor toMove) {
+		assert words.length == 4 && toMove != null;
+		this.words = words;
+		this.toMove = toMove;
+	}
+
+	/**
+	 * Encodes a position.
+	 * @param position position to encode
+	 * @param toMove side to move in the position
+	 * @return the packed position
+	 * @require position != null && toMove != null
+	 */
+	public static PackedPosition encode(Position position, PieceColor toMove) {
+		long[] words = new long[4];
+		for (int index = 0; index < Square.NUM_SQUARES; index++) {
+			long code = code(position.get(index));
+			words[index / SQUARES_PER_WORD] |= code << (4 * (index % SQUARES_PER_WORD));
+		}
+		return new PackedPosition(words, toMove);
+	}
+
+	/**
+	 * The nibble a piece is encoded as.
+	 * @param piece piece to encode, may be null
+	 * @return the code of the piece, 0 for null
+	 */
+	public static int code(Piece piece) {
+		if (piece == null)
+			return 0;
+		return code(piece.color(), piece.type());
+	}
+	
+	/**
+	 * The nibble a piece of the given color and type is encoded as.
+	 * @param color color of the piece
+	 * @param type type of the piece
+	 * @return the code of such a piece
+	 */
+	public static int code(PieceColor color, PieceType type) {
+		return (type.ordinal() + 1) | (color == PieceColor.BLACK ? BLACK_BIT : 0);
+	}
+	
+	/**
+	 * @param code code of a piece
+	 * @return the type of the piece, null for the empty code 0
+	 */
+	public static PieceType codeType(int code) {
+		return code == 0 ? null : TYPES[(code & ~BLACK_BIT) - 1];
+	}
+	
+	/**
+	 * @param code code of a piece
+	 * @return the color of the piece, null for the empty code 0
+	 */
+	public static PieceColor codeColor(int code) {
+		return code == 0 ? null : (code & BLACK_BIT) != 0 ? PieceColor.BLACK : PieceColor.WHITE;
+	}
+
+	/**
+	 * The code of the piece on a square.
+	 * @param index index of the square, as given by IntSquare.position()
+	 * @return the nibble stored for the square, 0 if it is empty
+	 */
+	public int code(int index) {
+		return (int)(words[index / SQUARES_PER_WORD] >>> (4 * (index % SQUARES_PER_WORD))) & 0xF;
+	}
+
+	/**
+	 * @param index index of the square, as given by IntSquare.position()
+	 * @return the type of the piece on the square, null if it is empty
+	 */
+	public PieceType type(int index) {
+		return codeType(code(index));
+	}
+
+	/**
+	 * @param index index of the square, as given by IntSquare.position()
+	 * @return the color of the piece on the square, null if it is empty
+	 */
+	public PieceColor color(int index) {
+		return codeColor(code(index));
+	}
+
+	/**
+	 * @return the side to move
+	 */
+	public PieceColor toMove() {
+		return toMove;
+	}
+
+	/**
+	 * Places the encoded pieces on a position.
+	 * Squares that are empty in the encoding are emptied on the target.
+	 * @param target position to place the pieces on
+	 */
+	public void decode(UpdatablePosition target) {
+		for (int index = 0; index < Square.NUM_SQUARES; index++) {
+			PieceType type = type(index);
+			target.set(index, type == null ? null
+			                  : new GenericPiece(color(index), IntSquareFactory.square(index), type));
+		}
+	}
+
+	/**
+	 * Decodes the pieces to a new position.
+	 * @return an ArrayPosition with the encoded pieces on it
+	 */
+	public UpdatablePosition decode() {
+		UpdatablePosition position = new ArrayPosition();
+		decode(position);
+		return position;
+	}
+
+	/**
+	 * Writes the packed position as BYTES bytes.
+	 * @param out output to write to
+	 * @throws IOException if the output fails
+	 */
+	public void write(DataOutput out) throws IOException {
+		for (long word : words)
+			out.writeLong(word);
+		out.writeByte(toMove.ordinal());
+	}
+
+	/**
+	 * Reads a packed position written by write(DataOutput).
+	 * @param in input to read from
+	 * @return the packed position
+	 * @throws IOException if the input fails
+	 */
+	public static PackedPosition read(DataInput in) throws IOException {
+		long[] words = new long[4];
+		for (int i = 0; i < words.length; i++)
+			words[i] = in.readLong();
+		return new PackedPosition(words, PieceColor.values()[in.readByte()]);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj instanceof PackedPosition) {
+			PackedPosition other = (PackedPosition)obj;
+			return toMove == other.toMove
+			    && words[0] == other.words[0] && words[1] == other.words[1]
+			    && words[2] == other.words[2] && words[3] == other.words[3];
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		long h = toMove.ordinal();
+		for (long word : words)
+			h = h * 0x9E3779B97F4A7C15L + word;
+		return (int)(h ^ (h >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int index = 0; index < Square.NUM_SQUARES; index++)
+			sb.append(Integer.toHexString(code(index)));
+		return sb.append(' ').append(toMove.c).toString();
+	}
+}
@@ -0,0 +1,210 @@
+package model.board;
+
+import model.pieces.FlyweightPiece;
+import model.pieces.Piece;
+import model.pieces.PieceColor;
+import model.pieces.PieceType;
+
+/**
+ * An immutable Position that shares structure with the positions it is derived from.
+ * The squares are stored in a two-level trie keyed by square index: the root holds
+ * one node per rank, and each rank node holds the pieces of that rank.
+ * Changing the position copies the root and the touched rank nodes only, so a
+ * derived position costs a few small arrays while every unchanged rank is shared.
+ *
+ * Pieces placed on a PersistentPosition are shared by every position derived
+ * from it, so they must be treated as read-only. Positions converted with from(Position)
+ * hold FlyweightPieces only, which are read-only by construction.
+ * @author Sebastian Paaske Trholm
+ */
+public final class PersistentPosition implements Position {
+	private static final Piece[] EMPTY_RANK = new Piece[Square.MAX_FILE];
+	private static final PersistentPosition EMPTY;
+
+	static {
+		Piece[][] ranks = new Piece[Square.MAX_RANK][];
+		for (int rank = 0; rank < Square.MAX_RANK; rank++)
+			ranks[rank] = EMPTY_RANK;
+		EMPTY = new PersistentPosition(ranks, 0, 0, 0);
+	}
+
+	private final Piece[][] ranks; // neither the root nor any rank node is changed once shared
+	private final long white, black; // occupancy of each color
+	private final long key;          // Zobrist key of the pieces
+
+	private PersistentPosition(Piece[][] ranks, long white, long black, long key) {
+		this.ranks = ranks;
+		this.white = white;
+		this.black = black;
+		this.key = key;
+	}
+
+	/**
+	 * @return the empty PersistentPosition
+	 */
+	public static PersistentPosition empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Creates a PersistentPosition from the given position, if conversion is needed.
+	 * When converting, the pieces are replaced by flyweights so that later changes
+	 * to the input do not reach the persistent position.
+	 * @param position position to convert
+	 * @return a PersistentPosition with equivalent pieces on it
+	 */
+	public static PersistentPosition from(Position position) {
+		if (position instanceof PersistentPosition)
+			return (PersistentPosition)position;
+
+		Piece[][] ranks = new Piece[Square.MAX_RANK][];
+		for (int rank = 0; rank < Square.MAX_RANK; rank++) {
+			Piece[] node = null;
+			for (int file = 0; file < Square.MAX_FILE; file++) {
+				Piece p = position.get(file + 1, rank + 1);
+				if (p == null)
+					continue;
+				if (node == null)
+					node = new Piece[Square.MAX_FILE];
+				node[file] = FlyweightPiece.of(p);
+			}
+			ranks[rank] = node == null ? EMPTY_RANK : node;
+		}
+		return new PersistentPosition(ranks, position.occupied(PieceColor.WHITE),
+		                                     position.occupied(PieceColor.BLACK),
+		                                     position.hashKey(PieceColor.WHITE));
+	}
+
+	@Override
+	public Piece get(Square square) {
+		return get(square.file(), square.rank());
+	}
+
+	@Override
+	public Piece get(int file, int rank) {
+		if (file < 1 || file > Square.MAX_FILE || rank < 1 || rank > Square.MAX_RANK)
+			return null;
+		return ranks[rank - 1][file - 1];
+	}
+
+	@Override
+	public Piece get(int index) {
+		return ranks[index / Square.MAX_FILE][index % Square.MAX_FILE];
+	}
+
+	@Override
+	public long occupied(PieceColor color) {
+		return color == PieceColor.WHITE ? white : black;
+	}
+
+	@Override
+	public long hashKey(PieceColor toMove) {
+		return key ^ Zobrist.toMove(toMove);
+	}
+
+	/**
+	 * Returns a position like this one, except for the piece on one square.
+	 * @param square square to change
+	 * @param piece piece to place, null to empty the square
+	 * @return the changed position, sharing all unchanged ranks with this one
+	 */
+	public PersistentPosition with(Square square, Piece piece) {
+		return with(IntSquareFactory.index(square), piece);
+	}
+
+	/**
+	 * Returns a position like this one, except for the piece on one square.
+	 * @param index index of the square to change, as given by IntSquare.position()
+	 * @param piece piece to place, null to empty the square
+	 * @return the changed position, sharing all unchanged ranks with this one
+	 * @require 0 <= index && index < Square.NUM_SQUARES
+	 */
+	public PersistentPosition with(int index, Piece piece) {
+		int rank = index / Square.MAX_FILE,
+		    file = index % Square.MAX_FILE;
+		if (ranks[rank][file] == piece)
+			return this;
+
+		Piece[][] newRanks = ranks.clone();
+		newRanks[rank] = ranks[rank].clone();
+		newRanks[rank][file] = piece;
+		
+		long bit = 1L << index,
+		     newWhite = white & ~bit,
+		     newBlack = black & ~bit;
+		if (piece != null && piece.color() == PieceColor.WHITE)
+			newWhite |= bit;
+		else if (piece != null)
+			newBlack |= bit;
+		return new PersistentPosition(newRanks, newWhite, newBlack,
+		                              key ^ Zobrist.piece(ranks[rank][file], index) 
+		                                  ^ Zobrist.piece(piece, index));
+	}
+
+	/**
+	 * Returns the position after making a move.
+	 * The moving piece is replaced by a copy on the target square, capturing whatever
+	 * stood there; a pawn reaching the final rank is promoted to a queen, as in
+	 * SimpleChessGame.
+	 * @param move move to make
+	 * @return the position after the move
+	 * @require get(move.from) != null
+	 */
+	public PersistentPosition play(Move move) {
+		return play(move.from, move.to);
+	}
+
+	/**
+	 * Returns the position after moving a piece.
+	 * @param from square of the moving piece
+	 * @param to target square of the move
+	 * @return the position after the move
+	 * @see #play(Move)
+	 * @require get(from) != null && !from.equals(to)
+	 */
+	public PersistentPosition play(Square from, Square to) {
+		Piece mover = get(from);
+		assert mover != null;
+
+		Piece moved = (Piece)mover.clone();
+		FlyweightPiece.locate(moved, to);
+		if (moved.type() == PieceType.PAWN
+		&&  to.rank() == (moved.color() == PieceColor.BLACK ? 1 : Square.MAX_RANK))
+			moved = FlyweightPiece.withType(moved, PieceType.QUEEN);
+
+		int fromRank = from.rank() - 1,
+		    toRank = to.rank() - 1;
+		Piece[][] newRanks = ranks.clone();
+		newRanks[fromRank] = ranks[fromRank].clone();
+		if (toRank != fromRank)
+			newRanks[toRank] = ranks[toRank].clone();
+		newRanks[fromRank][from.file() - 1] = null;
+		newRanks[toRank][to.file() - 1] = moved;
+		
+		int fromIndex = IntSquareFactory.index(from),
+		    toIndex = IntSquareFactory.index(to);
+		long fromBit = 1L << fromIndex,
+		     toBit = 1L << toIndex,
+		     newWhite = white & ~toBit,
+		     newBlack = black & ~toBit;
+		if (moved.color() == PieceColor.WHITE)
+			newWhite = (newWhite & ~fromBit) | toBit;
+		else
+			newBlack = (newBlack & ~fromBit) | toBit;
+		return new PersistentPosition(newRanks, newWhite, newBlack,
+		                              key ^ Zobrist.piece(mover, fromIndex)
+		                                  ^ Zobrist.piece(get(toIndex), toIndex)
+		                                  ^ Zobrist.piece(moved, toIndex));
+	}
+
+	@Override
+	public Position deepClone() {
+		PersistentPosition position = EMPTY;
+		for (int index = 0; index < Square.NUM_SQUARES; index++) {
+			Piece p = get(index);
+			if (p != null)
+				position = position.with(index, (Piece)p.clone());
+		}
+		return position;
+	}
+}
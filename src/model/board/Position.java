@@ -1,5 +1,6 @@
 package model.board;
 import model.pieces.Piece;
+import model.pieces.PieceColor;
 
 /**
  * A game position, modeled as an immutable mapping from squares to pieces
@@ -21,6 +22,35 @@ public interface Position {
 	 */
 	abstract public Piece get (int file, int rank);
 	
+	/**
+	 * The piece at a given location (square) given by its index
+	 * @param index The index of the location, as given by IntSquare.position()
+	 * @return the piece at that location, null if there is no piece at that location
+	 * @require 0 <= index && index < Square.NUM_SQUARES
+	 */
+	abstract public Piece get (int index);
+	
+	/**
+	 * The locations of all pieces of a given color, as a set of square indices.
+	 * The pieces of a color can be visited without scanning the whole board:
+	 * <pre>
+	 * for (long set = occupied(color); set != 0; set &amp;= set - 1) {
+	 *     int index = Long.numberOfTrailingZeros(set);
+	 *     ...
+	 * }
+	 * </pre>
+	 * @param color The color
+	 * @return a word with bit n set iff the square with index n holds a piece of that color
+	 */
+	abstract public long occupied (PieceColor color);
+	
+	/**
+	 * The Zobrist key of this position with a given side to move
+	 * @param toMove The side to move
+	 * @return the key, equal to Zobrist.key(this, toMove)
+	 */
+	abstract public long hashKey (PieceColor toMove);
+	
 	/**
 	 * Returns a deep clone of the position.
 	 * That it, it returns a Position of the same kind with equivalent pieces placed on it.
@@ -20,6 +20,11 @@ public interface Square {
 	 */
 	public static final int MAX_FILE_RANK = Math.max(MAX_FILE, MAX_RANK);
 	
+	/**
+	 * Symbolic constant for the number of squares on the chess board
+	 */
+	public static final int NUM_SQUARES = MAX_FILE * MAX_RANK;
+	
 	/**
 	 * The file (column) coordinate of this square
 	 * @return the file coordinate
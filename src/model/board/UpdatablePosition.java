@@ -26,4 +26,45 @@ public interface UpdatablePosition extends Position {
 	 */
 	public abstract void set (int file, int rank, Piece piece);
 	
+	/**
+	 * Place piece at a certain location, given by its index
+	 * @param index The index of the location, as given by IntSquare.position()
+	 * @param piece The piece
+	 * @require 0 <= index && index < Square.NUM_SQUARES
+	 */
+	public abstract void set (int index, Piece piece);
+	
+	/**
+	 * Make a move in place, remembering how to take it back.
+	 * The moving piece captures whatever stands on the target square, and a pawn
+	 * reaching the final rank is promoted to a queen.
+	 * @param move The move
+	 * @require get(move.from) != null
+	 */
+	public abstract void makeMove (Move move);
+	
+	/**
+	 * Make a move in place, given by the indices of its squares.
+	 * @param from The index of the square of the moving piece
+	 * @param to The index of the target square
+	 * @see #makeMove(Move)
+	 * @require get(from) != null && from != to
+	 */
+	public abstract void makeMove (int from, int to);
+	
+	/**
+	 * Take back the last move made with makeMove that has not been taken back yet,
+	 * restoring the captured piece and undoing any promotion.
+	 * @require a move has been made and not taken back
+	 */
+	public abstract void unmakeMove ();
+	
+	/**
+	 * The cache of the squares each piece can move to, kept up to date as the
+	 * position changes. It is created on first use; positions that are never
+	 * asked for it pay nothing.
+	 * @return the mobility cache of this position
+	 */
+	public abstract MobilityCache mobility ();
+	
 }
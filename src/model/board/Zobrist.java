@@ -0,0 +1,79 @@
+package model.board;
+
+import java.util.Random;
+
+import model.pieces.Piece;
+import model.pieces.PieceColor;
+import model.pieces.PieceType;
+
+/**
+ * Zobrist keys for chess positions.
+ * Every (color, type, square) triple and the side to move have a random 64-bit key;
+ * the key of a position is the exclusive or of the keys of everything in it.
+ * Placing or removing a piece therefore changes the key by a single xor, which
+ * lets positions keep their key up to date as they change.
+ * http://en.wikipedia.org/wiki/Zobrist_hashing
+ * @author Sebastian Paaske Trholm
+ */
+public final class Zobrist {
+	private static final long SEED = 0x5EEDC4E55L; // fixed, so keys are stable between runs
+	private static final long[][][] PIECES;
+	private static final long BLACK_TO_MOVE;
+
+	static {
+		Random random = new Random(SEED);
+		PIECES = new long[PieceColor.values().length][PieceType.values().length][Square.NUM_SQUARES];
+		for (long[][] colorKeys : PIECES)
+			for (long[] typeKeys : colorKeys)
+				for (int index = 0; index < Square.NUM_SQUARES; index++)
+					typeKeys[index] = random.nextLong();
+		BLACK_TO_MOVE = random.nextLong();
+	}
+
+	private Zobrist() { }
+
+	/**
+	 * The key of a piece standing on a square.
+	 * @param piece the piece, may be null
+	 * @param index index of the square, as given by IntSquare.position()
+	 * @return the key of the piece on the square, 0 if piece is null
+	 */
+	public static long piece(Piece piece, int index) {
+		if (piece == null)
+			return 0;
+		return PIECES[piece.color().ordinal()][piece.type().ordinal()][index];
+	}
+
+	/**
+	 * The key of a piece of the given color and type standing on a square.
+	 * @param color color of the piece
+	 * @param type type of the piece
+	 * @param index index of the square, as given by IntSquare.position()
+	 * @return the key of such a piece on the square
+	 */
+	public static long piece(PieceColor color, PieceType type, int index) {
+		return PIECES[color.ordinal()][type.ordinal()][index];
+	}
+
+	/**
+	 * The key of the side to move.
+	 * @param toMove side to move
+	 * @return the key to xor into a position's piece key
+	 */
+	public static long toMove(PieceColor toMove) {
+		return toMove == PieceColor.BLACK ? BLACK_TO_MOVE : 0;
+	}
+
+	/**
+	 * Computes the key of a position from scratch.
+	 * @param position position to compute the key of
+	 * @param toMove side to move
+	 * @return the key, equal to position.hashKey(toMove)
+	 */
+	public static long key(Position position, PieceColor toMove) {
+		long key = toMove(toMove);
+		for (int index = 0; index < Square.NUM_SQUARES; index++)
+			key ^= piece(position.get(index), index);
+		return key;
+	}
+}
@@ -0,0 +1,152 @@
+package model.movegen;
+
+import model.board.BitboardPosition;
+import model.board.Position;
+import model.board.Square;
+import model.pieces.PieceColor;
+import model.pieces.PieceType;
+
+/**
+ * Queries about which squares are attacked, i.e. could be captured on.
+ * isAttacked works backwards from the target square: it asks every piece type
+ * where it would have to stand to attack the square, and checks whether such
+ * a piece stands there. No moves are generated and nothing is allocated.
+ * @author Sebastian Paaske Trholm
+ */
+public final class Attacks {
+	private static final PieceType[] TYPES = PieceType.values();
+	private static final long[][] BETWEEN = new long[Square.NUM_SQUARES][Square.NUM_SQUARES];
+	private static final long[] LINES = new long[Square.NUM_SQUARES];
+	
+	static { // walk the eight directions from every square
+		for (int from = 0; from < Square.NUM_SQUARES; from++)
+			for (int dx = -1; dx <= 1; dx++)
+				for (int dy = -1; dy <= 1; dy++) {
+					if (dx == 0 && dy == 0)
+						continue;
+					long passed = 0;
+					int f = from % Square.MAX_FILE + dx,
+					    r = from / Square.MAX_FILE + dy;
+					for (; 0 <= f && f < Square.MAX_FILE && 0 <= r && r < Square.MAX_RANK; f += dx, r += dy) {
+						int to = r * Square.MAX_FILE + f;
+						BETWEEN[from][to] = passed;
+						LINES[from] |= 1L << to;
+						passed |= 1L << to;
+					}
+				}
+	}
+	
+	private Attacks() { }
+	
+	/**
+	 * Whether a square is attacked by any piece of a color.
+	 * @param position the position
+	 * @param square index of the square, as given by IntSquare.position()
+	 * @param byColor color of the attacking pieces
+	 * @return true iff a piece of color byColor attacks the square
+	 */
+	public static boolean isAttacked(Position position, int square, PieceColor byColor) {
+		return attackers(position, square, byColor, true) != 0;
+	}
+	
+	/**
+	 * The pieces of a color that attack a square.
+	 * @param position the position
+	 * @param square index of the square, as given by IntSquare.position()
+	 * @param byColor color of the attacking pieces
+	 * @return the squares of the attacking pieces, one bit per square index
+	 */
+	public static long attackers(Position position, int square, PieceColor byColor) {
+		return attackers(position, square, byColor, false);
+	}
+	
+	/**
+	 * The pieces of a color that would attack a square if only some squares were occupied,
+	 * e.g. to see through a piece that is about to move.
+	 * @param position the position
+	 * @param square index of the square, as given by IntSquare.position()
+	 * @param byColor color of the attacking pieces
+	 * @param occupied the squares to consider occupied; pieces elsewhere neither block nor attack
+	 * @return the squares of the attacking pieces, one bit per square index
+	 */
+	public static long attackers(Position position, int square, PieceColor byColor, long occupied) {
+		return attackers(position, square, byColor, occupied, false);
+	}
+	
+	private static long attackers(Position position, int square, PieceColor byColor, boolean any) {
+		return attackers(position, square, byColor, 
+		                 position.occupied(PieceColor.WHITE) | position.occupied(PieceColor.BLACK), any);
+	}
+	
+	private static long attackers(Position position, int square, PieceColor byColor, long occupied, boolean any) {
+		long own = position.occupied(byColor) & occupied,
+		     attackers = 0;
+		BitboardPosition bitboards = position instanceof BitboardPosition ? (BitboardPosition)position : null;
+		for (PieceType type : TYPES) {
+			long from = type.pattern.attackedFrom(byColor, square, occupied) & own;
+			if (bitboards != null)
+				attackers |= from & bitboards.pieces(byColor, type);
+			else
+				for (; from != 0; from &= from - 1) {
+					int index = Long.numberOfTrailingZeros(from);
+					if (position.get(index).type() == type)
+						attackers |= 1L << index;
+				}
+			if (any && attackers != 0)
+				break;
+		}
+		return attackers;
+	}
+	
+	/**
+	 * The attack map of a color: every square attacked by at least one of its pieces.
+	 * @param position the position
+	 * @param byColor color of the attacking pieces
+	 * @return the attacked squares, one bit per square index
+	 */
+	public static long attackMap(Position position, PieceColor byColor) {
+		long occupied = position.occupied(PieceColor.WHITE) | position.occupied(PieceColor.BLACK),
+		     attacked = 0;
+		for (long pieces = position.occupied(byColor); pieces != 0; pieces &= pieces - 1) {
+			int from = Long.numberOfTrailingZeros(pieces);
+			attacked |= position.get(from).type().pattern.attacks(byColor, from, occupied);
+		}
+		return attacked;
+	}
+	
+	/**
+	 * The squares strictly between two squares on a rank, file or diagonal.
+	 * @param from index of one square
+	 * @param to index of the other square
+	 * @return the squares between them, one bit per square index; 0 if they are not on a line
+	 */
+	public static long between(int from, int to) {
+		return BETWEEN[from][to];
+	}
+	
+	/**
+	 * The squares on a rank, file or diagonal through a square, i.e. those a queen
+	 * could reach from it on an empty board.
+	 * @param square index of the square
+	 * @return the squares in line with it, one bit per square index
+	 */
+	public static long lines(int square) {
+		return LINES[square];
+	}
+	
+	/**
+	 * Whether any king of a color is attacked.
+	 * @param position the position
+	 * @param color color of the king
+	 * @return true iff a king of the color is attacked by the other color
+	 */
+	public static boolean inCheck(Position position, PieceColor color) {
+		for (long pieces = position.occupied(color); pieces != 0; pieces &= pieces - 1) {
+			int index = Long.numberOfTrailingZeros(pieces);
+			if (position.get(index).type() == PieceType.KING
+			&&  isAttacked(position, index, color.other()))
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,147 @@
+package model.movegen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.board.BitboardPosition;
+import model.board.Move;
+import model.board.PackedPosition;
+import model.board.Position;
+import model.board.Square;
+import model.board.UpdatablePosition;
+import model.pieces.FlyweightPiece;
+import model.pieces.Piece;
+import model.pieces.PieceColor;
+import model.pieces.PieceType;
+
+/**
+ * Filters out the moves that would leave a king capturable by the opponent.
+ * The king and the pieces checking it are found once per position, and so are
+ * the pinned pieces: those whose removal opens a line from an enemy piece to the king.
+ * After that every move is judged by a few mask tests:
+ * <ul>
+ * <li>a king move is safe if its target isn't attacked once the king has left its square,</li>
+ * <li>any other move must capture or block the single checker, if there is one,
+ *     and a pinned piece must stay on the line between the king and its pinner.</li>
+ * </ul>
+ * Capturing a king ends the game, so such moves are always kept.
+ * Positions with several kings of the side to move are checked by making each move.
+ * A KingSafety holds scratch space, so each thread must use its own.
+ * @author Sebastian Paaske Trholm
+ */
+public final class KingSafety {
+	private final MoveGenerator generator = new MoveGenerator();
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+	private final long[] allowed = new long[Square.NUM_SQUARES]; // targets allowed for each pinned piece
+	
+	/**
+	 * The valid moves of the side to move that don't leave one of its kings capturable.
+	 * @param position the position
+	 * @param toMove the side to move
+	 * @return the safe moves; empty if there are none
+	 */
+	public List<Move> safeMoves(Position position, PieceColor toMove) {
+		int count = filter(position, toMove, moves, generator.generate(position, toMove, moves));
+		List<Move> safe = new ArrayList<Move>(count);
+		for (int i = 0; i < count; i++)
+			safe.add(MoveCode.toMove(moves[i]));
+		return safe;
+	}
+	
+	/**
+	 * Removes the moves that leave a king capturable from a buffer, keeping the order of the rest.
+	 * @param position the position
+	 * @param toMove the side to move
+	 * @param moves buffer holding valid moves of the side, encoded as by MoveCode
+	 * @param count number of moves in the buffer
+	 * @return the number of safe moves, which are moved to the front of the buffer
+	 */
+	public int filter(Position position, PieceColor toMove, int[] moves, int count) {
+		long kings = kings(position, toMove);
+		if (kings == 0)
+			return count; // nothing to protect
+		if ((kings & (kings - 1)) != 0)
+			return filterByMaking(position, toMove, moves, count);
+		
+		int king = Long.numberOfTrailingZeros(kings);
+		PieceColor enemy = toMove.other();
+		long occupied = position.occupied(PieceColor.WHITE) | position.occupied(PieceColor.BLACK),
+		     checkers = Attacks.attackers(position, king, enemy, occupied),
+		     evasions; // targets that deal with the checks, for pieces other than the king
+		if (checkers == 0)
+			evasions = ~0L;
+		else if ((checkers & (checkers - 1)) == 0) // capture or block the checker
+			evasions = checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+		else
+			evasions = 0; // only the king can escape two checks
+		
+		long pinned = 0;
+		for (long candidates = position.occupied(toMove) & Attacks.lines(king); candidates != 0; 
+		     candidates &= candidates - 1) {
+			int square = Long.numberOfTrailingZeros(candidates);
+			long pinners = Attacks.attackers(position, king, enemy, occupied & ~(1L << square)) & ~checkers;
+			if (pinners == 0)
+				continue;
+			pinned |= 1L << square;
+			long line = ~0L;
+			for (; pinners != 0; pinners &= pinners - 1) {
+				int pinner = Long.numberOfTrailingZeros(pinners);
+				line &= Attacks.between(king, pinner) | (1L << pinner);
+			}
+			allowed[square] = line;
+		}
+		
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			int move = moves[i],
+			    from = MoveCode.from(move),
+			    to = MoveCode.to(move);
+			long target = 1L << to;
+			boolean safe;
+			if (PackedPosition.codeType(MoveCode.captured(move)) == PieceType.KING)
+				safe = true; // the game is over
+			else if (from == king) // the king no longer blocks, and the piece taken no longer attacks
+				safe = Attacks.attackers(position, to, enemy, occupied & ~(1L << from) & ~target) == 0;
+			else
+				safe = (evasions & target) != 0
+				    && ((pinned & (1L << from)) == 0 || (allowed[from] & target) != 0);
+			if (safe)
+				moves[kept++] = move;
+		}
+		return kept;
+	}
+	
+	/**
+	 * The kings of a color.
+	 */
+	private static long kings(Position position, PieceColor color) {
+		if (position instanceof BitboardPosition)
+			return ((BitboardPosition)position).pieces(color, PieceType.KING);
+		long kings = 0;
+		for (long pieces = position.occupied(color); pieces != 0; pieces &= pieces - 1) {
+			int index = Long.numberOfTrailingZeros(pieces);
+			Piece p = position.get(index);
+			if (p.type() == PieceType.KING)
+				kings |= 1L << index;
+		}
+		return kings;
+	}
+	
+	/**
+	 * Filters by making every move on a copy of the position and looking for checks.
+	 */
+	private int filterByMaking(Position position, PieceColor toMove, int[] moves, int count) {
+		UpdatablePosition copy = new BitboardPosition(position);
+		FlyweightPiece.shareAll(copy);
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			copy.makeMove(MoveCode.from(move), MoveCode.to(move));
+			if (PackedPosition.codeType(MoveCode.captured(move)) == PieceType.KING
+			||  !Attacks.inCheck(copy, toMove))
+				moves[kept++] = move;
+			copy.unmakeMove();
+		}
+		return kept;
+	}
+}
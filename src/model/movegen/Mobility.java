@@ -0,0 +1,83 @@
+package model.movegen;
+
+import model.board.Position;
+import model.pieces.Piece;
+import model.pieces.PieceColor;
+
+/**
+ * Counts of where pieces can go and what they attack, for evaluation terms and filters
+ * that need how many rather than which. Everything is counted from the pattern tables
+ * and the occupancy of the position; no moves or squares are built.
+ * The counts agree with Piece.validSquares and with Attacks.
+ * @author Sebastian Paaske Trholm
+ */
+public final class Mobility {
+	private Mobility() { }
+	
+	/**
+	 * The number of squares a piece can move to.
+	 * @param position the position
+	 * @param from index of the square of the piece, as given by IntSquare.position()
+	 * @return the number of valid target squares, 0 if the square is empty
+	 */
+	public static int count(Position position, int from) {
+		Piece p = position.get(from);
+		if (p == null)
+			return 0;
+		PieceColor color = p.color();
+		long own = position.occupied(color);
+		return Long.bitCount(p.type().pattern.reach(color, from, own | position.occupied(color.other())) & ~own);
+	}
+	
+	/**
+	 * The number of moves a side has, i.e. the sum of the mobility of its pieces.
+	 * @param position the position
+	 * @param color the side
+	 * @return the number of valid moves of the side
+	 */
+	public static int count(Position position, PieceColor color) {
+		long own = position.occupied(color),
+		     occupied = own | position.occupied(color.other());
+		int moves = 0;
+		for (long pieces = own; pieces != 0; pieces &= pieces - 1) {
+			int from = Long.numberOfTrailingZeros(pieces);
+			moves += Long.bitCount(position.get(from).type().pattern.reach(color, from, occupied) & ~own);
+		}
+		return moves;
+	}
+	
+	/**
+	 * The number of squares a piece attacks, whatever stands on them.
+	 * @param position the position
+	 * @param from index of the square of the piece
+	 * @return the number of attacked squares, 0 if the square is empty
+	 */
+	public static int attacks(Position position, int from) {
+		Piece p = position.get(from);
+		if (p == null)
+			return 0;
+		long occupied = position.occupied(PieceColor.WHITE) | position.occupied(PieceColor.BLACK);
+		return Long.bitCount(p.type().pattern.attacks(p.color(), from, occupied));
+	}
+	
+	/**
+	 * The number of squares a side attacks with at least one piece.
+	 * @param position the position
+	 * @param byColor the side
+	 * @return the number of squares in Attacks.attackMap(position, byColor)
+	 */
+	public static int attacks(Position position, PieceColor byColor) {
+		return Long.bitCount(Attacks.attackMap(position, byColor));
+	}
+	
+	/**
+	 * The number of pieces of a side attacking a square.
+	 * @param position the position
+	 * @param square index of the square
+	 * @param byColor color of the attacking pieces
+	 * @return the number of pieces in Attacks.attackers(position, square, byColor)
+	 */
+	public static int attackers(Position position, int square, PieceColor byColor) {
+		return Long.bitCount(Attacks.attackers(position, square, byColor));
+	}
+}
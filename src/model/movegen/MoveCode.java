@@ -0,0 +1,159 @@
+package model.movegen;
+
+import model.board.IntSquareFactory;
+import model.board.Move;
+import model.board.PackedPosition;
+import model.board.Position;
+import model.board.Square;
+import model.pieces.Piece;
+import model.pieces.PieceColor;
+import model.pieces.PieceType;
+
+/**
+ * Moves encoded in a single int, so they can be generated and stored without allocating.
+ * From the least significant bit up, a move holds
+ * <ul>
+ * <li>the index of the source square (6 bits),</li>
+ * <li>the index of the target square (6 bits),</li>
+ * <li>the code of the moving piece (4 bits),</li>
+ * <li>the code of the captured piece, 0 if none (4 bits),</li>
+ * <li>the code of the piece a pawn is promoted to, 0 if none (4 bits).</li>
+ * </ul>
+ * Squares are indexed as by IntSquare.position(), and pieces are coded as by
+ * PackedPosition.code(Piece).
+ * @author Sebastian Paaske Trholm
+ */
+public final class MoveCode {
+	private static final int SQUARE_BITS = 6, CODE_BITS = 4;
+	private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1, CODE_MASK = (1 << CODE_BITS) - 1;
+	private static final int TO_SHIFT = SQUARE_BITS,
+	                         MOVER_SHIFT = 2 * SQUARE_BITS,
+	                         CAPTURED_SHIFT = MOVER_SHIFT + CODE_BITS,
+	                         PROMOTION_SHIFT = CAPTURED_SHIFT + CODE_BITS;
+	
+	/**
+	 * Number of low bits an encoded move occupies; the rest are 0.
+	 */
+	public static final int BITS = PROMOTION_SHIFT + CODE_BITS;
+	
+	private MoveCode() { }
+	
+	/**
+	 * Encodes a move.
+	 * @param from index of the source square
+	 * @param to index of the target square
+	 * @param mover code of the moving piece
+	 * @param captured code of the captured piece, 0 if none
+	 * @param promotion code of the piece the mover is promoted to, 0 if none
+	 * @return the encoded move
+	 */
+	public static int encode(int from, int to, int mover, int captured, int promotion) {
+		return from | to << TO_SHIFT | mover << MOVER_SHIFT 
+		     | captured << CAPTURED_SHIFT | promotion << PROMOTION_SHIFT;
+	}
+	
+	/**
+	 * Encodes a move in a position, promoting pawns that reach the final rank to queens.
+	 * @param move the move
+	 * @param position the position the move is made in
+	 * @return the encoded move
+	 * @require position.get(move.from) != null
+	 */
+	public static int encode(Move move, Position position) {
+		int from = IntSquareFactory.index(move.from),
+		    to = IntSquareFactory.index(move.to);
+		Piece mover = position.get(from);
+		return encode(from, to, PackedPosition.code(mover), PackedPosition.code(position.get(to)),
+		              promotion(mover.color(), mover.type(), to));
+	}
+	
+	/**
+	 * The promotion code of a move, as given by SimpleChessGame's rules.
+	 * @param color color of the moving piece
+	 * @param type type of the moving piece
+	 * @param to index of the target square
+	 * @return code of a queen of the color if a pawn reaches the final rank, 0 otherwise
+	 */
+	public static int promotion(PieceColor color, PieceType type, int to) {
+		if (type != PieceType.PAWN)
+			return 0;
+		int rank = to / Square.MAX_FILE + 1;
+		if (rank != (color == PieceColor.BLACK ? 1 : Square.MAX_RANK))
+			return 0;
+		return PackedPosition.code(color, PieceType.QUEEN);
+	}
+	
+	/**
+	 * @param move an encoded move
+	 * @return index of the source square
+	 */
+	public static int from(int move) {
+		return move & SQUARE_MASK;
+	}
+	
+	/**
+	 * @param move an encoded move
+	 * @return index of the target square
+	 */
+	public static int to(int move) {
+		return (move >>> TO_SHIFT) & SQUARE_MASK;
+	}
+	
+	/**
+	 * @param move an encoded move
+	 * @return code of the moving piece
+	 */
+	public static int mover(int move) {
+		return (move >>> MOVER_SHIFT) & CODE_MASK;
+	}
+	
+	/**
+	 * @param move an encoded move
+	 * @return code of the captured piece, 0 if none
+	 */
+	public static int captured(int move) {
+		return (move >>> CAPTURED_SHIFT) & CODE_MASK;
+	}
+	
+	/**
+	 * @param move an encoded move
+	 * @return code of the piece the mover is promoted to, 0 if none
+	 */
+	public static int promotion(int move) {
+		return (move >>> PROMOTION_SHIFT) & CODE_MASK;
+	}
+	
+	/**
+	 * @param move an encoded move
+	 * @return whether the move captures a piece
+	 */
+	public static boolean isCapture(int move) {
+		return captured(move) != 0;
+	}
+	
+	/**
+	 * Decodes the squares of a move.
+	 * @param move an encoded move
+	 * @return the move as a Move
+	 */
+	public static Move toMove(int move) {
+		return new Move(IntSquareFactory.square(from(move)), IntSquareFactory.square(to(move)));
+	}
+	
+	/**
+	 * @param move an encoded move
+	 * @return a readable form of the move, e.g. "WPe7e8=Q"
+	 */
+	public static String toString(int move) {
+		int mover = mover(move),
+		    promotion = promotion(move);
+		StringBuilder sb = new StringBuilder();
+		sb.append(PackedPosition.codeColor(mover).c).append(PackedPosition.codeType(mover).c)
+		  .append(IntSquareFactory.square(from(move)))
+		  .append(isCapture(move) ? "x" : "")
+		  .append(IntSquareFactory.square(to(move)));
+		if (promotion != 0)
+			sb.append('=').append(PackedPosition.codeType(promotion).c);
+		return sb.toString();
+	}
+}
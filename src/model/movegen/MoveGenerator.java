@@ -0,0 +1,125 @@
+package model.movegen;
+
+import model.board.PackedPosition;
+import model.board.Position;
+import model.board.Square;
+import model.pieces.Piece;
+import model.pieces.PieceColor;
+
+/**
+ * Generates moves as int codes (see MoveCode) into buffers supplied by the caller.
+ * A search keeps one buffer per ply, so no moves, squares or lists are allocated
+ * while it runs.
+ * A MoveGenerator holds scratch space, so each thread must use its own.
+ * @author Sebastian Paaske Trholm
+ */
+public final class MoveGenerator {
+	/**
+	 * Size of a move buffer that is large enough for any position.
+	 */
+	public static final int MAX_MOVES = 256;
+	
+	private final int[] targets = new int[Square.NUM_SQUARES]; // squares one piece can reach
+	
+	/**
+	 * Creates buffers for a search.
+	 * @param plies number of plies the search can be deep
+	 * @return one buffer of MAX_MOVES moves per ply
+	 */
+	public static int[][] buffers(int plies) {
+		return new int[plies][MAX_MOVES];
+	}
+	
+	/**
+	 * Generates all valid moves for the side to move, as SimpleChessGame.allValidMoves would.
+	 * @param position the position to generate moves in
+	 * @param toMove the side to move
+	 * @param moves buffer to write the encoded moves to
+	 * @return the number of moves written
+	 * @require moves.length >= MAX_MOVES
+	 */
+	public int generate(Position position, PieceColor toMove, int[] moves) {
+		return generate(position, toMove, moves, 0);
+	}
+	
+	/**
+	 * Generates all valid moves of one side, appending them to a buffer.
+	 * @param position the position to generate moves in
+	 * @param toMove the side to move
+	 * @param moves buffer to write the encoded moves to
+	 * @param count number of moves already in the buffer
+	 * @return the number of moves in the buffer afterwards
+	 */
+	public int generate(Position position, PieceColor toMove, int[] moves, int count) {
+		return generate(position, toMove, moves, count, ~position.occupied(toMove)); // not onto own pieces
+	}
+	
+	/**
+	 * Generates the moves of one side that capture a piece, appending them to a buffer.
+	 * @param position the position to generate moves in
+	 * @param toMove the side to move
+	 * @param moves buffer to write the encoded moves to
+	 * @param count number of moves already in the buffer
+	 * @return the number of moves in the buffer afterwards
+	 */
+	public int generateCaptures(Position position, PieceColor toMove, int[] moves, int count) {
+		return generate(position, toMove, moves, count, position.occupied(toMove.other()));
+	}
+	
+	/**
+	 * Generates the moves of one side onto empty squares, appending them to a buffer.
+	 * @param position the position to generate moves in
+	 * @param toMove the side to move
+	 * @param moves buffer to write the encoded moves to
+	 * @param count number of moves already in the buffer
+	 * @return the number of moves in the buffer afterwards
+	 */
+	public int generateQuiets(Position position, PieceColor toMove, int[] moves, int count) {
+		return generate(position, toMove, moves, count, 
+		                ~(position.occupied(toMove) | position.occupied(toMove.other())));
+	}
+	
+	/**
+	 * Whether a move is valid in a position, e.g. a move remembered from another position.
+	 * @param position the position
+	 * @param toMove the side to move
+	 * @param move an encoded move
+	 * @return true iff generate would give the move
+	 */
+	public boolean isValid(Position position, PieceColor toMove, int move) {
+		int from = MoveCode.from(move),
+		    to = MoveCode.to(move);
+		Piece p = position.get(from);
+		if (p == null || p.color() != toMove
+		||  PackedPosition.code(p) != MoveCode.mover(move)
+		||  PackedPosition.code(position.get(to)) != MoveCode.captured(move)
+		||  MoveCode.promotion(p.color(), p.type(), to) != MoveCode.promotion(move))
+			return false;
+		int n = p.type().pattern.squareTargets(p, from, position, targets, 0);
+		for (int i = 0; i < n; i++)
+			if (targets[i] == to)
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Generates the moves of one side onto a set of squares.
+	 * Targets come from the pattern's reach as a bitboard, so a stage restricted to
+	 * captures or to quiet moves never visits the squares of the other stage.
+	 * @param allowed the squares that may be moved to, one bit per square index
+	 */
+	private int generate(Position position, PieceColor toMove, int[] moves, int count, long allowed) {
+		long occupied = position.occupied(toMove) | position.occupied(toMove.other());
+		for (long pieces = position.occupied(toMove); pieces != 0; pieces &= pieces - 1) {
+			int from = Long.numberOfTrailingZeros(pieces);
+			Piece p = position.get(from);
+			int mover = PackedPosition.code(p);
+			for (long to = p.type().pattern.reach(p.color(), from, occupied) & allowed; to != 0; to &= to - 1) {
+				int target = Long.numberOfTrailingZeros(to);
+				moves[count++] = MoveCode.encode(from, target, mover, PackedPosition.code(position.get(target)),
+				                                 MoveCode.promotion(p.color(), p.type(), target));
+			}
+		}
+		return count;
+	}
+}
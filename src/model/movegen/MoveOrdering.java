@@ -0,0 +1,126 @@
+package model.movegen;
+
+import java.util.Arrays;
+
+import model.board.PackedPosition;
+import model.board.Square;
+import model.pieces.PieceColor;
+import model.pieces.PieceType;
+
+/**
+ * What a search has learned about which moves to try first, for StagedMoveIterator.
+ * <ul>
+ * <li>Captures are tried most valuable victim first, then least valuable attacker first
+ * (MVV-LVA).</li>
+ * <li>Killer moves: the last two quiet moves that caused a beta cutoff at each ply,
+ * which are likely to cut off again in sibling positions.</li>
+ * <li>The history table: for each side, a score per (from, to) pair of squares that
+ * grows whenever a quiet move between them causes a cutoff, deeper cutoffs counting
+ * more. Quiet moves are tried by descending history score.</li>
+ * </ul>
+ * Like a MoveGenerator, a MoveOrdering is meant for one search thread.
+ * @author Sebastian Paaske Trholm
+ */
+public final class MoveOrdering {
+	private static final int[] VALUES = new int[PieceType.values().length]; // victim values by type
+	private static final int HISTORY_LIMIT = 1 << 24; // halve the table before any score gets near overflow
+	
+	static {
+		VALUES[PieceType.PAWN.ordinal()] = 1;
+		VALUES[PieceType.KNIGHT.ordinal()] = 3;
+		VALUES[PieceType.BISHOP.ordinal()] = 3;
+		VALUES[PieceType.ROOK.ordinal()] = 5;
+		VALUES[PieceType.QUEEN.ordinal()] = 9;
+		VALUES[PieceType.KING.ordinal()] = 100; // taking the king wins
+	}
+	
+	private int[][] killers; // two per ply, most recent first
+	private final int[] history = new int[PieceColor.values().length * Square.NUM_SQUARES * Square.NUM_SQUARES];
+	
+	/**
+	 * Creates a new, empty MoveOrdering.
+	 * @param plies number of plies to keep killer moves for; grows as needed
+	 */
+	public MoveOrdering(int plies) {
+		killers = new int[Math.max(plies, 1)][2];
+	}
+	
+	/**
+	 * The MVV-LVA score of a capture.
+	 * @param move an encoded capture
+	 * @return a score, higher for captures to try first
+	 */
+	public static int mvvLva(int move) {
+		PieceType victim = PackedPosition.codeType(MoveCode.captured(move)),
+		          attacker = PackedPosition.codeType(MoveCode.mover(move));
+		return VALUES[victim.ordinal()] * 128 - VALUES[attacker.ordinal()];
+	}
+	
+	/**
+	 * The history score of a quiet move.
+	 * @param move an encoded move
+	 * @return the score, higher for moves that caused more and deeper cutoffs
+	 */
+	public int history(int move) {
+		return history[historyIndex(move)];
+	}
+	
+	/**
+	 * A killer move of a ply.
+	 * @param ply the ply, 0 at the root
+	 * @param slot 0 for the most recent killer, 1 for the one before
+	 * @return the killer, StagedMoveIterator.NONE if none
+	 */
+	public int killer(int ply, int slot) {
+		return ply < killers.length ? killers[ply][slot] : StagedMoveIterator.NONE;
+	}
+	
+	/**
+	 * Learns from a move that caused a beta cutoff. Captures are ordered by
+	 * MVV-LVA alone, so only quiet moves are remembered.
+	 * @param move the move
+	 * @param ply the ply the cutoff happened at, 0 at the root
+	 * @param depth the depth left at the ply
+	 */
+	public void cutoff(int move, int ply, int depth) {
+		if (MoveCode.isCapture(move))
+			return;
+		if (ply >= killers.length) {
+			int plies = killers.length;
+			killers = Arrays.copyOf(killers, ply + 1);
+			for (int i = plies; i < killers.length; i++)
+				killers[i] = new int[2];
+		}
+		if (killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		int index = historyIndex(move);
+		history[index] += depth * depth;
+		if (history[index] > HISTORY_LIMIT)
+			age();
+	}
+	
+	/**
+	 * Halves all history scores, so that what is learned later weighs more;
+	 * meant to be called between searches.
+	 */
+	public void age() {
+		for (int i = 0; i < history.length; i++)
+			history[i] >>= 1;
+	}
+	
+	/**
+	 * Forgets everything learned.
+	 */
+	public void clear() {
+		for (int[] slots : killers)
+			Arrays.fill(slots, StagedMoveIterator.NONE);
+		Arrays.fill(history, 0);
+	}
+	
+	private static int historyIndex(int move) {
+		int color = PackedPosition.codeColor(MoveCode.mover(move)).ordinal();
+		return (color * Square.NUM_SQUARES + MoveCode.from(move)) * Square.NUM_SQUARES + MoveCode.to(move);
+	}
+}
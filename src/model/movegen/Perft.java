@@ -0,0 +1,232 @@
+package model.movegen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import model.board.BitboardPosition;
+import model.board.PackedPosition;
+import model.board.Position;
+import model.board.UpdatablePosition;
+import model.pieces.FlyweightPiece;
+import model.pieces.PieceColor;
+import model.pieces.PieceType;
+
+/**
+ * Counts the leaf nodes of the move tree to a given depth ("perft"), for measuring
+ * the speed of move generation and checking its correctness against known counts.
+ * The rules are SimpleChessGame's: pawns reaching the final rank become queens,
+ * and the game ends when a king is captured, so such a capture has no subtree.
+ * The 200-ply limit of the game is not applied.
+ *
+ * Counting can be split over the root moves in a fork-join pool, and counts of
+ * subtrees can be kept in a perft hash, which transposed subtrees then reuse.
+ * The hash is shared by all threads without locking: each entry is stored as
+ * (key xor count, count), so an entry torn by a concurrent write fails verification
+ * and is simply recounted.
+ * @author Sebastian Paaske Trholm
+ */
+public final class Perft {
+	private static final long[] DEPTH_KEYS = new long[64]; // distinguishes counts to different depths
+	
+	static {
+		long state = 0x9E3779B97F4A7C15L;
+		for (int i = 0; i < DEPTH_KEYS.length; i++) {
+			state ^= state >>> 12;
+			state ^= state << 25;
+			state ^= state >>> 27;
+			DEPTH_KEYS[i] = state * 0x2545F4914F6CDD1DL;
+		}
+	}
+	
+	/**
+	 * The count below one root move, as given by divide.
+	 */
+	public static final class Division {
+		/**
+		 * The root move, encoded as by MoveCode.
+		 */
+		public final int move;
+		/**
+		 * The number of leaf nodes below the move.
+		 */
+		public final long nodes;
+		
+		private Division(int move, long nodes) {
+			this.move = move;
+			this.nodes = nodes;
+		}
+		
+		@Override
+		public String toString() {
+			return MoveCode.toString(move) + ": " + nodes;
+		}
+	}
+	
+	private final ForkJoinPool pool; // null when counting on the calling thread
+	private final long[] hash; // pairs of (key ^ count, count), null if disabled
+	private final int hashMask;
+	
+	/**
+	 * Creates a single-threaded Perft without a hash.
+	 */
+	public Perft() { this(1, 0); }
+	
+	/**
+	 * Creates a new Perft.
+	 * @param threads number of threads to count with, in a pool kept by this Perft; 
+	 *        1 counts on the calling thread
+	 * @param hashMegabytes size of the perft hash in megabytes, 0 for none
+	 * @require threads >= 1 && hashMegabytes >= 0
+	 */
+	public Perft(int threads, int hashMegabytes) {
+		assert threads >= 1 && hashMegabytes >= 0;
+		this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+		if (hashMegabytes > 0) {
+			int entries = Integer.highestOneBit((int)Math.min(Integer.MAX_VALUE / 2, // two longs each
+			                                                  hashMegabytes * (1L << 20) / 16));
+			this.hash = new long[2 * entries];
+			this.hashMask = entries - 1;
+		} else {
+			this.hash = null;
+			this.hashMask = 0;
+		}
+	}
+	
+	/**
+	 * Counts the leaf nodes to a given depth.
+	 * @param position the position to count from; it is not changed
+	 * @param toMove the side to move
+	 * @param depth the depth to count to
+	 * @return the number of move sequences of length depth from the position
+	 * @require depth >= 0
+	 */
+	public long count(Position position, PieceColor toMove, int depth) {
+		if (depth == 0)
+			return 1;
+		long nodes = 0;
+		for (Division division : divide(position, toMove, depth))
+			nodes += division.nodes;
+		return nodes;
+	}
+	
+	/**
+	 * Counts the leaf nodes to a given depth below each root move.
+	 * @param position the position to count from; it is not changed
+	 * @param toMove the side to move
+	 * @param depth the depth to count to
+	 * @return the count for each root move, in the order the moves are generated
+	 * @require 1 <= depth && depth < 64
+	 */
+	public List<Division> divide(Position position, PieceColor toMove, int depth) {
+		assert depth >= 1;
+		UpdatablePosition root = searchPosition(position);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = new MoveGenerator().generate(root, toMove, moves);
+		
+		final List<RootTask> tasks = new ArrayList<RootTask>(count);
+		for (int i = 0; i < count; i++)
+			tasks.add(new RootTask(root, toMove, moves[i], depth));
+		
+		if (pool != null)
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		else
+			for (RootTask task : tasks)
+				task.invoke();
+		
+		List<Division> divisions = new ArrayList<Division>(count);
+		for (RootTask task : tasks)
+			divisions.add(new Division(task.move, task.join()));
+		return divisions;
+	}
+	
+	/**
+	 * A private copy of a position, made of flyweights so that copies can share pieces.
+	 */
+	private static UpdatablePosition searchPosition(Position position) {
+		UpdatablePosition copy = new BitboardPosition(position);
+		FlyweightPiece.shareAll(copy);
+		return copy;
+	}
+	
+	/**
+	 * Counts the subtree of one root move, on its own copy of the root position.
+	 */
+	private final class RootTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		private final Position root;
+		private final PieceColor toMove;
+		private final int move, depth;
+		
+		RootTask(Position root, PieceColor toMove, int move, int depth) {
+			this.root = root;
+			this.toMove = toMove;
+			this.move = move;
+			this.depth = depth;
+		}
+		
+		@Override
+		protected Long compute() {
+			if (depth == 1)
+				return 1L;
+			if (capturesKing(move))
+				return 0L; // the game is over
+			UpdatablePosition position = searchPosition(root);
+			position.makeMove(MoveCode.from(move), MoveCode.to(move));
+			return count(position, toMove.other(), depth - 1, 
+			             new MoveGenerator(), MoveGenerator.buffers(depth));
+		}
+	}
+	
+	/**
+	 * Whether a move ends the game by capturing a king.
+	 */
+	private static boolean capturesKing(int move) {
+		return PackedPosition.codeType(MoveCode.captured(move)) == PieceType.KING;
+	}
+	
+	/**
+	 * Counts the leaf nodes below a position.
+	 * @param buffers one move buffer per remaining ply, indexed by depth
+	 */
+	private long count(UpdatablePosition position, PieceColor toMove, int depth, 
+	                   MoveGenerator generator, int[][] buffers) {
+		int[] moves = buffers[depth];
+		if (depth == 1)
+			return generator.generate(position, toMove, moves); // every move is a leaf, including captures of a king
+		
+		long key = position.hashKey(toMove) ^ DEPTH_KEYS[depth];
+		int slot = 2 * ((int)key & hashMask);
+		if (hash != null) { // before generating, so a hit costs no moves
+			long stored = hash[slot + 1]; // read once, so another thread cannot change it after the check
+			if ((hash[slot] ^ stored) == key)
+				return stored;
+		}
+		
+		int count = generator.generate(position, toMove, moves);
+		long nodes = 0;
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			if (capturesKing(move))
+				continue; // the game is over, so nothing lies below
+			position.makeMove(MoveCode.from(move), MoveCode.to(move));
+			nodes += count(position, toMove.other(), depth - 1, generator, buffers);
+			position.unmakeMove();
+		}
+		
+		if (hash != null) {
+			hash[slot] = key ^ nodes;
+			hash[slot + 1] = nodes;
+		}
+		return nodes;
+	}
+}
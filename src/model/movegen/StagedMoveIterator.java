@@ -0,0 +1,168 @@
+package model.movegen;
+
+import model.board.Position;
+import model.pieces.PieceColor;
+
+/**
+ * Hands out the moves of a position one at a time, in stages: first the hash move
+ * (a move remembered as best from an earlier search), then the captures, then the
+ * killer moves, then the other quiet moves. A stage is only generated once the one
+ * before it is used up, so a search node that is cut off early never generates its
+ * quiet moves.
+ * Given a MoveOrdering, captures are handed out by MVV-LVA and quiet moves by history
+ * score, each picked from the rest of its stage when it is asked for; otherwise every
+ * stage is handed out in the order it was generated in, and there are no killers.
+ * An iterator is meant to be reused, one per ply of a search, so it allocates
+ * nothing after construction. Like a MoveGenerator it is not thread-safe.
+ * @author Sebastian Paaske Trholm
+ */
+public final class StagedMoveIterator {
+	/**
+	 * Returned by next() once every move has been handed out; no move encodes to 0.
+	 */
+	public static final int NONE = 0;
+	
+	private static final int HASH = 0, CAPTURES = 1, KILLER1 = 2, KILLER2 = 3, QUIETS = 4, DONE = 5;
+	
+	private final MoveGenerator generator;
+	private final MoveOrdering ordering; // null if none
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES],
+	                    scores = new int[MoveGenerator.MAX_MOVES]; // of the moves, when ordering
+	private Position position;
+	private PieceColor toMove;
+	private int hashMove, killer1, killer2, ply, stage, index, count;
+	
+	/**
+	 * Creates a new StagedMoveIterator that hands out each stage in generation order.
+	 * @param generator the generator to generate the stages with
+	 */
+	public StagedMoveIterator(MoveGenerator generator) {
+		this(generator, null);
+	}
+	
+	/**
+	 * Creates a new StagedMoveIterator.
+	 * @param generator the generator to generate the stages with
+	 * @param ordering the killers and history to order moves by, null for none
+	 */
+	public StagedMoveIterator(MoveGenerator generator, MoveOrdering ordering) {
+		this.generator = generator;
+		this.ordering = ordering;
+		this.stage = DONE;
+	}
+	
+	/**
+	 * Starts handing out the moves of a position.
+	 * The position must not change until the iterator is done with it,
+	 * except for moves that have been made and taken back again.
+	 * @param position the position
+	 * @param toMove the side to move
+	 * @param hashMove move to try first, NONE if there is none; ignored unless valid in the position
+	 */
+	public void reset(Position position, PieceColor toMove, int hashMove) {
+		reset(position, toMove, hashMove, 0);
+	}
+	
+	/**
+	 * Starts handing out the moves of a position at a ply of a search.
+	 * @param position the position
+	 * @param toMove the side to move
+	 * @param hashMove move to try first, NONE if there is none; ignored unless valid in the position
+	 * @param ply the ply of the position in the search, 0 at the root; picks the killer moves
+	 * @see #reset(Position, PieceColor, int)
+	 */
+	public void reset(Position position, PieceColor toMove, int hashMove, int ply) {
+		this.position = position;
+		this.toMove = toMove;
+		this.hashMove = hashMove != NONE && generator.isValid(position, toMove, hashMove) ? hashMove : NONE;
+		this.killer1 = this.killer2 = NONE;
+		this.ply = ply;
+		this.stage = HASH;
+		this.index = 0;
+		this.count = 0;
+	}
+	
+	/**
+	 * The next move, generating the next stage if needed.
+	 * @return the next move, NONE if every move has been handed out
+	 */
+	public int next() {
+		while (true) {
+			while (index < count) {
+				if (ordering != null)
+					pickBest();
+				int move = moves[index++];
+				if (move != hashMove && move != killer1 && move != killer2) // already handed out
+					return move;
+			}
+			
+			switch (stage) {
+			case HASH:
+				stage = CAPTURES;
+				if (hashMove != NONE)
+					return hashMove;
+				break;
+			case CAPTURES:
+				count = generator.generateCaptures(position, toMove, moves, 0);
+				index = 0;
+				if (ordering != null)
+					for (int i = 0; i < count; i++)
+						scores[i] = MoveOrdering.mvvLva(moves[i]);
+				stage = ordering != null ? KILLER1 : QUIETS;
+				break;
+			case KILLER1:
+				stage = KILLER2;
+				killer1 = killer(0);
+				if (killer1 != NONE)
+					return killer1;
+				break;
+			case KILLER2:
+				stage = QUIETS;
+				killer2 = killer(1);
+				if (killer2 != NONE)
+					return killer2;
+				break;
+			case QUIETS:
+				count = generator.generateQuiets(position, toMove, moves, 0);
+				index = 0;
+				if (ordering != null)
+					for (int i = 0; i < count; i++)
+						scores[i] = ordering.history(moves[i]);
+				stage = DONE;
+				break;
+			default:
+				return NONE;
+			}
+		}
+	}
+	
+	/**
+	 * A killer move of the ply if it can be handed out as one: a valid quiet move
+	 * other than the hash move.
+	 */
+	private int killer(int slot) {
+		int move = ordering.killer(ply, slot);
+		if (move == NONE || move == hashMove || move == killer1 || MoveCode.isCapture(move)
+		||  !generator.isValid(position, toMove, move))
+			return NONE;
+		return move;
+	}
+	
+	/**
+	 * Swaps the best scored of the moves left into place, a step of selection sort;
+	 * it is the cheapest way to order when most nodes are cut off after a few moves.
+	 */
+	private void pickBest() {
+		int best = index;
+		for (int i = index + 1; i < count; i++)
+			if (scores[i] > scores[best])
+				best = i;
+		if (best != index) {
+			int move = moves[best], score = scores[best];
+			moves[best] = moves[index];
+			scores[best] = scores[index];
+			moves[index] = move;
+			scores[index] = score;
+		}
+	}
+}
@@ -59,10 +59,14 @@ public class FlawedKing implements Piece {
 	};
 	
 	public Collection<Square> validSquares(Position position) {
+		return validSquares(position, location);
+	}
+	
+	public Collection<Square> validSquares(Position position, Square from) {
 		Collection<Square> validsquares = new HashSet<Square>();
 		for (int[] move : kingMoves) {
-			int f = location.file() + move[0];
-			int r = location.rank() + move[1];
+			int f = from.file() + move[0];
+			int r = from.rank() + move[1];
 			if (f >= 1 && f <= Square.MAX_FILE && r >= 1 && r <= Square.MAX_RANK) {
 				Piece p = position.get(f, r);
 				if (p==null) 
@@ -75,10 +79,14 @@ public class FlawedKing implements Piece {
 	}
 	
 	public boolean canMoveTo (Position position, Square square) {
+		return canMoveTo(position, location, square);
+	}
+	
+	public boolean canMoveTo (Position position, Square from, Square square) {
 		int f = square.file();
 		int r = square.rank();
-		int file = location.file();
-		int rank = location.rank();
+		int file = from.file();
+		int rank = from.rank();
 		Piece p = position.get(f, r);
 		assert position.get(file, rank) == this;
 		return Math.abs(f - file) <= 1 && Math.abs(r - rank) <=1 
@@ -113,6 +121,10 @@ public class FlawedKing implements Piece {
 		this.type = type;
 	}
 	
+	public void location(Square square) {
+		this.location = square;
+	}
+	
 	public Object clone() {
 		return new FlawedKing(this.color, this.location);
 	}
@@ -0,0 +1,181 @@
+package model.pieces;
+
+
+import java.util.*;
+
+import model.board.IntSquareFactory;
+import model.board.Position;
+import model.board.Square;
+import model.board.SquareFactory;
+import model.board.UpdatablePosition;
+
+/**
+ * A piece that is nothing but its color and type.
+ * There is exactly one FlyweightPiece for each combination, shared by every
+ * position that uses it; the square of a piece is given by where it stands in
+ * a position, and is passed explicitly to validSquares and canMoveTo.
+ * As flyweights never change, positions made of them can be copied with a
+ * plain array copy and shared freely between search branches and threads.
+ * @author Sebastian Paaske Trholm
+ */
+public final class FlyweightPiece implements Piece {
+	private static final FlyweightPiece[][] PIECES;
+	private static final SquareFactory squareFactory = new IntSquareFactory();
+	
+	static {
+		PieceColor[] colors = PieceColor.values();
+		PieceType[] types = PieceType.values();
+		PIECES = new FlyweightPiece[colors.length][types.length];
+		for (PieceColor color : colors)
+			for (PieceType type : types)
+				PIECES[color.ordinal()][type.ordinal()] = new FlyweightPiece(color, type);
+	}
+	
+	private final PieceColor color;
+	private final PieceType type;
+	
+	private FlyweightPiece(PieceColor color, PieceType type) {
+		this.color = color;
+		this.type = type;
+	}
+	
+	/**
+	 * The flyweight of a given color and type.
+	 * @param color color of the piece
+	 * @param type type of the piece
+	 * @return the shared piece
+	 * @require color != null && type != null
+	 */
+	public static FlyweightPiece of(PieceColor color, PieceType type) {
+		return PIECES[color.ordinal()][type.ordinal()];
+	}
+	
+	/**
+	 * The flyweight of the same color and type as a piece.
+	 * @param piece any piece, may be null
+	 * @return the shared piece, null if piece is null
+	 */
+	public static FlyweightPiece of(Piece piece) {
+		if (piece == null)
+			return null;
+		return of(piece.color(), piece.type());
+	}
+	
+	/**
+	 * Replaces every piece on a position with its flyweight, so that the position
+	 * shares no mutable pieces with anything else.
+	 * @param position position to convert
+	 */
+	public static void shareAll(UpdatablePosition position) {
+		for (int index = 0; index < Square.NUM_SQUARES; index++) {
+			Piece p = position.get(index);
+			if (p != null && !(p instanceof FlyweightPiece))
+				position.set(index, of(p));
+		}
+	}
+	
+	/**
+	 * Gives a piece a new type. Mutable pieces are changed and returned,
+	 * while a flyweight is replaced by the flyweight of the new type.
+	 * @param piece piece to change
+	 * @param type the new type
+	 * @return the piece to place on the board in place of piece
+	 * @ensure result.type() == type && result.color() == piece.color()
+	 */
+	public static Piece withType(Piece piece, PieceType type) {
+		if (piece instanceof FlyweightPiece)
+			return of(piece.color(), type);
+		piece.type(type);
+		return piece;
+	}
+	
+	/**
+	 * Moves a piece to a square, if it keeps its own location.
+	 * Mutable pieces are told their new square, while a flyweight, which has no
+	 * location, is left as it is.
+	 * @param piece piece being moved
+	 * @param square square the piece now stands on
+	 */
+	public static void locate(Piece piece, Square square) {
+		if (!(piece instanceof FlyweightPiece))
+			piece.location(square);
+	}
+	
+	public PieceColor color() {
+		return color;
+	}
+	
+	public PieceType type() {
+		return type;
+	}
+	
+	/**
+	 * Flyweights have no location.
+	 * @return null
+	 */
+	public Square location() {
+		return null;
+	}
+	
+	/**
+	 * Flyweights have no location; use locate(Piece, Square) instead.
+	 * @throws UnsupportedOperationException always
+	 */
+	public void location(Square square) {
+		throw new UnsupportedOperationException("Flyweight pieces have no location");
+	}
+	
+	/**
+	 * Flyweights can't change type; use withType(Piece, PieceType) instead.
+	 * @throws UnsupportedOperationException always
+	 */
+	public void type(PieceType type) {
+		throw new UnsupportedOperationException("Flyweight pieces can't change type");
+	}
+	
+	/**
+	 * Flyweights don't know where they stand; use validSquares(Position, Square) instead.
+	 * @throws UnsupportedOperationException always
+	 */
+	public Collection<Square> validSquares(Position position) {
+		throw new UnsupportedOperationException("Flyweight pieces have no location");
+	}
+	
+	public Collection<Square> validSquares(Position position, Square from) {
+		return GenericPiece.validSquares(this, position, from, squareFactory);
+	}
+	
+	/**
+	 * Flyweights don't know where they stand; use canMoveTo(Position, Square, Square) instead.
+	 * @throws UnsupportedOperationException always
+	 */
+	public boolean canMoveTo(Position position, Square square) {
+		throw new UnsupportedOperationException("Flyweight pieces have no location");
+	}
+	
+	public boolean canMoveTo(Position position, Square from, Square square) {
+		return GenericPiece.canMoveTo(this, position, from, square);
+	}
+	
+	/**
+	 * Flyweights don't know where they stand; use UpdatablePosition.makeMove instead.
+	 * @throws UnsupportedOperationException always
+	 */
+	public void moveTo(UpdatablePosition position, Square square) {
+		throw new UnsupportedOperationException("Flyweight pieces have no location");
+	}
+	
+	@Override
+	public String toString() {
+		return "" + color.c + type.c;
+	}
+	
+	/**
+	 * Flyweights are immutable, so the clone is the piece itself.
+	 * @return this piece
+	 */
+	@Override
+	public Object clone() {
+		return this;
+	}
+}
@@ -6,9 +6,9 @@ import java.util.*;
 import model.board.Square;
 import model.board.SquareFactory;
 import model.board.IntSquareFactory;
+import model.board.MailboxPosition;
 import model.board.Position;
 import model.board.UpdatablePosition;
-import model.pieces.types.MovementPattern;
 
 /**
  * An flexible implementation of Piece
@@ -19,7 +19,6 @@ public class GenericPiece implements Piece {
 	private PieceColor color;
 	private Square location;
 	private PieceType type;
-	private MovementPattern movementPattern;
 	private SquareFactory squareFactory = new IntSquareFactory(); // can be changed to other factories for producing square objects
 	
 	public GenericPiece(PieceColor color, Square square, PieceType type) {
@@ -43,7 +42,10 @@ public class GenericPiece implements Piece {
 	
 	public void type(PieceType type) {
 		this.type = type;
-		this.movementPattern = type.pattern;
+	}
+	
+	public void location(Square square) {
+		this.location = square;
 	}
 	
 	public void moveTo(UpdatablePosition position, Square f) {
@@ -54,33 +56,93 @@ public class GenericPiece implements Piece {
 	}
 	
 	public Collection<Square> validSquares(Position position) {
+		return validSquares(position, location);
+	}
+	
+	public Collection<Square> validSquares(Position position, Square from) {
+		return validSquares(this, position, from, squareFactory);
+	}
+	
+	/**
+	 * The squares a piece standing on a given square can move to.
+	 * Shared with FlyweightPiece, which moves by the same patterns.
+	 * @param piece the piece
+	 * @param position the game position
+	 * @param from the square the piece stands on
+	 * @param squareFactory factory for the resulting squares
+	 * @return the set of all squares the piece can move to
+	 */
+	static Collection<Square> validSquares(Piece piece, Position position, Square from, 
+	                                       SquareFactory squareFactory) {
+		if (position instanceof MailboxPosition)
+			return validMailboxSquares(piece, (MailboxPosition)position, from);
+		
 		Collection<Square> validsquares = new HashSet<Square>();
-		for (int[] move : movementPattern.legalMoves(this, position)) {
-			int f = location.file() + move[0];
-			int r = location.rank() + move[1];
+		for (int[] move : piece.type().pattern.legalMoves(piece, from, position)) {
+			int f = from.file() + move[0];
+			int r = from.rank() + move[1];
 			if (f >= 1 && f <= Square.MAX_FILE && r >= 1 && r <= Square.MAX_RANK) {
 				Piece p = position.get(f, r);
 				if (p==null) 
 					validsquares.add(squareFactory.create(f, r));
-				else if (p.color() != color) 
+				else if (p.color() != piece.color()) 
 					validsquares.add(squareFactory.create(f, r));
 			}
 		}
 		return validsquares;
 	}
 	
+	/**
+	 * The squares a piece can move to on a mailbox board, found by stepping
+	 * through the mailbox so that no coordinates need to be bounds checked.
+	 * @param piece the piece
+	 * @param position the game position
+	 * @param square the square the piece stands on
+	 * @return the set of all squares the piece can move to
+	 */
+	private static Collection<Square> validMailboxSquares(Piece piece, MailboxPosition position, 
+	                                                      Square square) {
+		Collection<Square> validsquares = new HashSet<Square>();
+		int[] targets = new int[MailboxPosition.MAX_TARGETS];
+		int from = MailboxPosition.cell(IntSquareFactory.index(square)),
+		    count = piece.type().pattern.mailboxTargets(piece, from, position, targets, 0);
+		for (int i = 0; i < count; i++) {
+			Piece p = position.cellPiece(targets[i]);
+			if (p == null || p.color() != piece.color())
+				validsquares.add(MailboxPosition.square(targets[i]));
+		}
+		return validsquares;
+	}
+	
 	public boolean canMoveTo (Position position, Square square) {
+		return canMoveTo(position, location, square);
+	}
+	
+	public boolean canMoveTo (Position position, Square from, Square square) {
+		return canMoveTo(this, position, from, square);
+	}
+	
+	/**
+	 * Whether a piece standing on a given square can move to a certain square.
+	 * Shared with FlyweightPiece, which moves by the same patterns.
+	 * @param piece the piece
+	 * @param position the game position
+	 * @param from the square the piece stands on
+	 * @param square the square to move to
+	 * @return true if the piece can move from from to square
+	 */
+	static boolean canMoveTo (Piece piece, Position position, Square from, Square square) {
 		int f = square.file();
 		int r = square.rank();
-		int file = location.file();
-		int rank = location.rank();
+		int file = from.file();
+		int rank = from.rank();
 		Piece p = position.get(f, r);
-		assert position.get(file, rank) == this;
+		assert position.get(file, rank) == piece;
 		
-		if (p != null && p.color() == color) // can't move onto own pieces
+		if (p != null && p.color() == piece.color()) // can't move onto own pieces
 			return false; 
 		
-		for (int[] move : movementPattern.legalMoves(this, position)) {
+		for (int[] move : piece.type().pattern.legalMoves(piece, from, position)) {
 			int fl = file + move[0];
 			int ra = rank + move[1];
 			if (fl == f && ra == r)
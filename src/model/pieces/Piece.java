@@ -27,6 +27,17 @@ public interface Piece extends Cloneable {
 	 */
 	public abstract boolean canMoveTo (Position gamePosition, Square square);
 	
+	/**
+	 * Whether this piece, standing on a given square, can move to a certain square.
+	 * Unlike canMoveTo(Position, Square) this does not rely on the piece knowing its location.
+	 * @param gamePosition The game position (mapping of squares to pieces)
+	 * @param from The square this piece stands on
+	 * @param square The square to move to
+	 * @return true if this piece can move from from to square
+	 * @require gamePosition.get(from) == this
+	 */
+	public abstract boolean canMoveTo (Position gamePosition, Square from, Square square);
+	
 	/**
 	 * The squares this piece can move to
 	 * @param gamePosition The game position
@@ -35,6 +46,16 @@ public interface Piece extends Cloneable {
 	 */
 	public abstract Collection<Square> validSquares (Position gamePosition);
 	
+	/**
+	 * The squares this piece, standing on a given square, can move to
+	 * @param gamePosition The game position
+	 * @param from The square this piece stands on
+	 * @return the set of all squares this piece can move to
+	 * @require gamePosition.get(from) == this
+	 * @ensure result is the set of all squares f such that canMoveTo(gamePosition, from, f)
+	 */
+	public abstract Collection<Square> validSquares (Position gamePosition, Square from);
+	
 	/**
 	 * Move to new square in given position
 	 * @param gamePosition The game position
@@ -63,6 +84,13 @@ public interface Piece extends Cloneable {
      */
 	public abstract void type(PieceType type);
 	
+    /**
+     * Change the location of the piece, without consulting any position.
+     * Used when a copy of a piece is placed on a new square of a new position.
+     * @ensure this.location() == square
+     */
+	public abstract void location(Square square);
+	
 	/**
 	 * Clones this piece.
 	 * @return a clone of this piece
@@ -10,7 +10,8 @@ public enum PieceType {
 	ROOK('R', new RookPattern()),
 	KNIGHT('N', new KnightPattern()),
 	BISHOP('B', new BishopPattern()),
-	QUEEN('Q', new QueenPattern()),
+	QUEEN('Q', new PatternDescription().rays(PatternDescription.ORTHOGONAL)
+	                                   .rays(PatternDescription.DIAGONAL).compile()),
 	KING('K', new SimplifiedKingPattern());
 	
 	public final char c;
@@ -0,0 +1,202 @@
+package model.pieces.types;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.board.MailboxPosition;
+import model.board.Position;
+import model.board.Square;
+import model.pieces.Piece;
+import model.pieces.PieceColor;
+
+/**
+ * A MovementPattern compiled from a PatternDescription.
+ * For each color the leaps are compiled into per-square sets of squares to move to,
+ * to capture on and to be captured from, and the rays into magic bitboard tables,
+ * so every query is a handful of table lookups however the piece was described.
+ * Rays are split over several tables where one table for all of them would grow
+ * too large; a queen is looked up as a rook and a bishop.
+ * @author Sebastian Paaske Trholm
+ */
+final class CompiledPattern implements MovementPattern {
+	private static final int MAX_BITS = 12; // blocker bits of a table, as many as for a rook
+	private static final int COLORS = PieceColor.values().length;
+	private static final MagicAttacks[] NONE = {};
+	
+	private final long[][] leapMoves = new long[COLORS][Square.NUM_SQUARES],
+	                       leapCaptures = new long[COLORS][Square.NUM_SQUARES],
+	                       leapCapturedFrom = new long[COLORS][Square.NUM_SQUARES];
+	private final MagicAttacks[][] moveRays = new MagicAttacks[COLORS][],    // may move only
+	                               captureRays = new MagicAttacks[COLORS][], // may capture only
+	                               bothRays = new MagicAttacks[COLORS][],    // may do either
+	                               reverseRays = new MagicAttacks[COLORS][]; // capturing rays, pointing back
+	
+	/**
+	 * Compiles leaps and rays as kept by PatternDescription.
+	 * @param leaps {dx, dy, mode} of each leap
+	 * @param rays {dx, dy, length, mode} of each ray
+	 */
+	CompiledPattern(List<int[]> leaps, List<int[]> rays) {
+		for (PieceColor color : PieceColor.values()) {
+			int c = color.ordinal(),
+			    forward = color == PieceColor.WHITE ? 1 : -1; // black sees the board mirrored
+			
+			for (int[] leap : leaps) {
+				int dx = leap[0],
+				    dy = leap[1] * forward;
+				PatternDescription.Mode mode = PatternDescription.Mode.values()[leap[2]];
+				for (int from = 0; from < Square.NUM_SQUARES; from++) {
+					int f = from % Square.MAX_FILE + dx,
+					    r = from / Square.MAX_FILE + dy;
+					if (f < 0 || f >= Square.MAX_FILE || r < 0 || r >= Square.MAX_RANK)
+						continue;
+					int to = r * Square.MAX_FILE + f;
+					if (mode != PatternDescription.Mode.CAPTURE_ONLY)
+						leapMoves[c][from] |= 1L << to;
+					if (mode != PatternDescription.Mode.MOVE_ONLY) {
+						leapCaptures[c][from] |= 1L << to;
+						leapCapturedFrom[c][to] |= 1L << from;
+					}
+				}
+			}
+			
+			List<int[]> moving = new ArrayList<int[]>(),
+			            capturing = new ArrayList<int[]>(),
+			            both = new ArrayList<int[]>(),
+			            back = new ArrayList<int[]>();
+			for (int[] ray : rays) {
+				int[] step = { ray[0], ray[1] * forward, ray[2] };
+				switch (PatternDescription.Mode.values()[ray[3]]) {
+					case MOVE_ONLY:
+						moving.add(step);
+						continue; // can't be captured along
+					case CAPTURE_ONLY:
+						capturing.add(step);
+						break;
+					default:
+						both.add(step);
+				}
+				back.add(new int[]{ -step[0], -step[1], step[2] });
+			}
+			moveRays[c] = tables(moving);
+			captureRays[c] = tables(capturing);
+			bothRays[c] = tables(both);
+			reverseRays[c] = tables(back);
+		}
+	}
+	
+	/**
+	 * Splits rays over as few tables as possible, adding rays to a table while none of
+	 * its squares has more than MAX_BITS squares that can block a ray.
+	 */
+	private static MagicAttacks[] tables(List<int[]> rays) {
+		if (rays.isEmpty())
+			return NONE;
+		List<MagicAttacks> tables = new ArrayList<MagicAttacks>();
+		List<int[]> group = new ArrayList<int[]>();
+		long[] masks = new long[Square.NUM_SQUARES];
+		for (int[] ray : rays) {
+			boolean fits = true;
+			for (int from = 0; from < Square.NUM_SQUARES && fits; from++)
+				fits = Long.bitCount(masks[from] | MagicAttacks.blockers(from, ray[0], ray[1], ray[2])) <= MAX_BITS;
+			if (!fits) {
+				tables.add(build(group));
+				group.clear();
+				masks = new long[Square.NUM_SQUARES];
+			}
+			group.add(ray);
+			for (int from = 0; from < Square.NUM_SQUARES; from++)
+				masks[from] |= MagicAttacks.blockers(from, ray[0], ray[1], ray[2]);
+		}
+		tables.add(build(group));
+		return tables.toArray(new MagicAttacks[tables.size()]);
+	}
+	
+	private static MagicAttacks build(List<int[]> rays) {
+		int[] dxs = new int[rays.size()],
+		      dys = new int[rays.size()],
+		      lengths = new int[rays.size()];
+		for (int i = 0; i < dxs.length; i++) {
+			dxs[i] = rays.get(i)[0];
+			dys[i] = rays.get(i)[1];
+			lengths[i] = rays.get(i)[2];
+		}
+		return MagicAttacks.of(dxs, dys, lengths);
+	}
+	
+	private static long lookup(MagicAttacks[] tables, int from, long occupied) {
+		long reached = 0;
+		for (MagicAttacks table : tables)
+			reached |= table.attacks(from, occupied);
+		return reached;
+	}
+	
+	/**
+	 * The squares a piece can go to: empty squares it may move to and
+	 * occupied squares it may capture on, of either color.
+	 */
+	private long reached(PieceColor color, int from, long occupied) {
+		int c = color.ordinal();
+		long both = lookup(bothRays[c], from, occupied),
+		     moves = leapMoves[c][from] | lookup(moveRays[c], from, occupied) | both,
+		     captures = leapCaptures[c][from] | lookup(captureRays[c], from, occupied) | both;
+		return (moves & ~occupied) | (captures & occupied);
+	}
+	
+	private static long occupied(Position board) {
+		return board.occupied(PieceColor.WHITE) | board.occupied(PieceColor.BLACK);
+	}
+	
+	@Override
+	public List<int[]> legalMoves(Piece piece, Square from, Position board) {
+		int index = (from.rank() - 1) * Square.MAX_FILE + from.file() - 1;
+		long reached = reached(piece.color(), index, occupied(board));
+		List<int[]> moves = new ArrayList<int[]>(Long.bitCount(reached));
+		for (; reached != 0; reached &= reached - 1) {
+			int to = Long.numberOfTrailingZeros(reached);
+			moves.add(new int[]{ to % Square.MAX_FILE - index % Square.MAX_FILE, 
+			                     to / Square.MAX_FILE - index / Square.MAX_FILE });
+		}
+		return moves;
+	}
+	
+	@Override
+	public int squareTargets(Piece piece, int from, Position board, int[] targets, int count) {
+		for (long reached = reached(piece.color(), from, occupied(board)); reached != 0; reached &= reached - 1)
+			targets[count++] = Long.numberOfTrailingZeros(reached);
+		return count;
+	}
+	
+	@Override
+	public long reach(PieceColor color, int from, long occupied) {
+		return reached(color, from, occupied);
+	}
+	
+	@Override
+	public long attacks(PieceColor color, int from, long occupied) {
+		int c = color.ordinal();
+		return leapCaptures[c][from] | lookup(captureRays[c], from, occupied) | lookup(bothRays[c], from, occupied);
+	}
+	
+	@Override
+	public long attackedFrom(PieceColor color, int to, long occupied) {
+		int c = color.ordinal();
+		return leapCapturedFrom[c][to] | lookup(reverseRays[c], to, occupied);
+	}
+	
+	@Override
+	public long dependencies(PieceColor color, int from, long occupied) {
+		int c = color.ordinal();
+		return leapMoves[c][from] | leapCaptures[c][from] 
+		     | lookup(moveRays[c], from, occupied) | lookup(captureRays[c], from, occupied)
+		     | lookup(bothRays[c], from, occupied);
+	}
+	
+	@Override
+	public int mailboxTargets(Piece piece, int from, MailboxPosition board, int[] targets, int count) {
+		long reached = reached(piece.color(), MailboxPosition.index(from), occupied(board));
+		for (; reached != 0; reached &= reached - 1)
+			targets[count++] = MailboxPosition.cell(Long.numberOfTrailingZeros(reached));
+		return count;
+	}
+}
@@ -1,25 +1,118 @@
 package model.pieces.types;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import model.board.MailboxPosition;
 import model.board.Position;
+import model.board.Square;
 import model.pieces.Piece;
+import model.pieces.PieceColor;
 
 /**
  * MovementPattern used for pieces that can jump to set offsets without 
  * caring what's between where it is and the resulting position. 
+ * Where the jumps lead from each square is worked out once, when the pattern
+ * is created, so finding the targets of a jump is a table lookup.
  * @author Sebastian Paaske Trholm
  */
 public abstract class JumpingPattern implements MovementPattern {
+	private final long[] attacks = new long[Square.NUM_SQUARES];           // targets from each square, as a set
+	private final int[][] targets = new int[Square.NUM_SQUARES][];         // targets from each square, as indices
+	private final long[] attackedFrom = new long[Square.NUM_SQUARES];      // squares jumping to each square
+	private final List<List<int[]>> offsets = new ArrayList<List<int[]>>(); // offsets that stay on the board
+	
+	/**
+	 * Builds the target tables of the pattern.
+	 * Subclasses must be able to give their jumpOffsets() before their own construction.
+	 */
+	protected JumpingPattern() {
+		int[][] jumps = jumpOffsets();
+		for (int from = 0; from < Square.NUM_SQUARES; from++) {
+			int file = from % Square.MAX_FILE,
+			    rank = from / Square.MAX_FILE,
+			    count = 0;
+			int[] squares = new int[jumps.length];
+			List<int[]> onBoard = new ArrayList<int[]>(jumps.length);
+			for (int[] offset : jumps) {
+				int f = file + offset[0],
+				    r = rank + offset[1];
+				if (0 <= f && f < Square.MAX_FILE && 0 <= r && r < Square.MAX_RANK) {
+					int to = r * Square.MAX_FILE + f;
+					squares[count++] = to;
+					attacks[from] |= 1L << to;
+					attackedFrom[to] |= 1L << from;
+					onBoard.add(offset);
+				}
+			}
+			int[] trimmed = new int[count];
+			System.arraycopy(squares, 0, trimmed, 0, count);
+			targets[from] = trimmed;
+			offsets.add(Collections.unmodifiableList(onBoard));
+		}
+	}
+	
 	/**
 	 * @return offsets this pattern can jump to
 	 */
 	protected abstract int[][] jumpOffsets(); 
 	
+	/**
+	 * The squares this pattern jumps to from a square, regardless of what stands on them.
+	 * @param from index of the square jumped from, as given by IntSquare.position()
+	 * @return the set of squares jumped to, one bit per square index
+	 */
+	public long attacks(int from) {
+		return attacks[from];
+	}
+	
+	/**
+	 * The squares this pattern jumps to from a square, regardless of what stands on them.
+	 * @param from index of the square jumped from, as given by IntSquare.position()
+	 * @return indices of the squares jumped to; must not be changed
+	 */
+	public int[] targets(int from) {
+		return targets[from];
+	}
+	
+	@Override
+	public long attacks(PieceColor color, int from, long occupied) {
+		return attacks[from];
+	}
+	
+	@Override
+	public long attackedFrom(PieceColor color, int to, long occupied) {
+		return attackedFrom[to];
+	}
+	
+	@Override
+	public long reach(PieceColor color, int from, long occupied) {
+		return attacks[from];
+	}
+	
+	@Override
+	public long dependencies(PieceColor color, int from, long occupied) {
+		return attacks[from];
+	}
+	
+	@Override
+	public List<int[]> legalMoves(Piece piece, Square from, Position board) {
+		return offsets.get((from.rank() - 1) * Square.MAX_FILE + from.file() - 1);
+	}
+	
+	@Override
+	public int squareTargets(Piece piece, int from, Position board, int[] targets, int count) {
+		int[] squares = this.targets[from];
+		System.arraycopy(squares, 0, targets, count, squares.length);
+		return count + squares.length;
+	}
+	
 	@Override
-	public List<int[]> legalMoves(Piece piece, Position board) {
-		return Arrays.asList(jumpOffsets());
+	public int mailboxTargets(Piece piece, int from, MailboxPosition board, int[] targets, int count) {
+		for (int to : this.targets[MailboxPosition.index(from)])
+			targets[count++] = MailboxPosition.cell(to);
+		return count;
 	}
 
 }
@@ -5,9 +5,11 @@ package model.pieces.types;
  * @author Sebastian Paaske Trholm
  */
 public class KnightPattern extends JumpingPattern {
+	private static final int[][] OFFSETS = { {1, 2}, {-1, 2}, {1, -2}, {-1, -2},
+	                                         {2, 1}, {-2, 1}, {2, -1}, {-2, -1} };
+	
 	@Override
 	protected final int[][] jumpOffsets() {
-		return new int[][]{ {1, 2}, {-1, 2}, {1, -2}, {-1, -2},
-			                {2, 1}, {-2, 1}, {2, -1}, {-2, -1} };
+		return OFFSETS;
 	}
 }
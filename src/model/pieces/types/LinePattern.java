@@ -3,96 +3,124 @@ package model.pieces.types;
 import java.util.ArrayList;
 import java.util.List;
 
+import model.board.MailboxPosition;
 import model.board.Position;
 import model.board.Square;
 import model.pieces.Piece;
+import model.pieces.PieceColor;
 
 /**
  * Defines a general pattern for pieces that move in straight lines.
+ * The squares reached from a square are looked up in magic bitboard tables
+ * rather than found by walking the rays.
  * @author Sebastian Paaske Trholm
  */
 public abstract class LinePattern implements MovementPattern {
-	private final int[][] lineBoundaries;
+	private final int[] dxs, dys, lengths; // unit step and length of each ray
+	private final int[] mailboxSteps;      // unit step of each ray on a mailbox board
+	private final MagicAttacks magic,      // attack tables for the rays
+	                           reverse;    // and for the rays pointing back
 	
 	/**
 	 * Create a new LinePattern.
+	 * Each boundary must either be on the form {0, y}, {x, 0} or
+	 * {x, y} where Math.abs(x) == Math.abs(y).
 	 * @param lineBoundaries boundaries for rays emanating from the piece
 	 */
 	protected LinePattern(int[][] lineBoundaries) {
-		this.lineBoundaries = lineBoundaries;
-	}
-	
-	@Override
-	public List<int[]> legalMoves(Piece piece, Position board) {
-		List<int[]> freeTiles = new ArrayList<int[]>();
-		for (int[] ray : lineBoundaries)
-			freeTiles.addAll(directionalRay(ray, piece, board));
+		int rays = lineBoundaries.length;
+		dxs = new int[rays];
+		dys = new int[rays];
+		lengths = new int[rays];
+		mailboxSteps = new int[rays];
 		
-		return freeTiles;
+		for (int i = 0; i < rays; i++) {
+			int[] direction = lineBoundaries[i];
+			assert direction.length == 2;
+			assert direction[0] == 0 || direction[1] == 0 
+			    || Math.abs(direction[0]) == Math.abs(direction[1]);
+			
+			dxs[i] = Integer.signum(direction[0]);
+			dys[i] = Integer.signum(direction[1]);
+			lengths[i] = Math.max(Math.abs(direction[0]), Math.abs(direction[1]));
+			mailboxSteps[i] = MailboxPosition.step(dxs[i], dys[i]);
+		}
+		magic = MagicAttacks.of(dxs, dys, lengths);
+		int[] backX = new int[rays],
+		      backY = new int[rays];
+		for (int i = 0; i < rays; i++) {
+			backX[i] = -dxs[i];
+			backY[i] = -dys[i];
+		}
+		reverse = MagicAttacks.of(backX, backY, lengths); // the same tables for symmetric patterns
 	}
 	
 	/**
-	 * Returns which tiles are moveable to following a ray emanating with a given direction.
-	 * Example: Say that direction is {3, 3}, then this method returns
-	 * { {1,1}, {2,2}, {3,3} }, assuming there are no obstacles blocking the path to {3, 3}.
-	 * If there is something blocking in {2, 2}, it will return { {1,1}, {2,2} }.
-	 * Note that direction must either be on the form {0, y}, {x, 0} or
-	 * {x, y} where Math.abs(x) == Math.abs(y).
-	 * @param direction direction (and length) to emanate
-	 * @param piece the piece to emanate from
-	 * @param board the layout of the board
-	 * @return see comment
-	 * @require direction.length == 2
+	 * The squares reached along the rays of this pattern from a square, by magic lookup.
+	 * @param from index of the square, as given by IntSquare.position()
+	 * @param occupied the occupied squares, one bit per square index
+	 * @return the squares reached, including the first occupied square of each ray
 	 */
-	private static List<int[]> directionalRay(int[] direction,
-			                                  Piece piece,
-			                                  Position board) {
-		assert direction.length == 2;
-		
-		
-		List<int[]> ray = new ArrayList<int[]>();
-		
-		// We're dealing with two kinds of rays here:
-		// - Rays where one coordinate change
-		// - Rays where both coordinates change by the same (mod sign) amount
-		
-		Square loc = piece.location();
-		int f = loc.file(),
-		    r = loc.rank(),
-		    x = 0,
-		    y = 0,
-		    i = 0,
-		    max, // numerical max, that is.
-		    dx, dy;
-		
-		// Rays of one coordinate
-		if (direction[0] == 0 || direction[1] == 0) {
-			    max = direction[0] + direction[1]; 
-			    dx = direction[0] != 0 ? 1 : 0;
-			    dy = direction[1] != 0 ? 1 : 0;
-			    
-			    if (max < 0) {
-			    	dx *= -1;
-			    	dy *= -1;
-			    	max *= -1;
-			    }
+	public long attacks(int from, long occupied) {
+		return magic.attacks(from, occupied);
+	}
+	
+	@Override
+	public long attacks(PieceColor color, int from, long occupied) {
+		return magic.attacks(from, occupied);
+	}
+	
+	@Override
+	public long attackedFrom(PieceColor color, int to, long occupied) {
+		return reverse.attacks(to, occupied);
+	}
+	
+	@Override
+	public long reach(PieceColor color, int from, long occupied) {
+		return magic.attacks(from, occupied);
+	}
+	
+	@Override
+	public long dependencies(PieceColor color, int from, long occupied) {
+		return magic.attacks(from, occupied); // squares beyond the first blocker don't matter
+	}
+	
+	@Override
+	public List<int[]> legalMoves(Piece piece, Square from, Position board) {
+		int index = (from.rank() - 1) * Square.MAX_FILE + from.file() - 1;
+		long reached = attacks(index, board.occupied(PieceColor.WHITE) | board.occupied(PieceColor.BLACK));
+		List<int[]> freeTiles = new ArrayList<int[]>(Long.bitCount(reached));
+		for (; reached != 0; reached &= reached - 1) {
+			int to = Long.numberOfTrailingZeros(reached);
+			freeTiles.add(new int[]{ to % Square.MAX_FILE - index % Square.MAX_FILE, 
+			                         to / Square.MAX_FILE - index / Square.MAX_FILE });
 		}
-		
-		// Rays of two coordinates (diagonal)
-		else {
-			max = Math.max(Math.abs(direction[0]), Math.abs(direction[1])); 
-		    dx = direction[0] > 0 ? 1 : -1;
-		    dy = direction[1] > 0 ? 1 : -1;	    
+		return freeTiles;
+	}
+	
+	@Override
+	public int squareTargets(Piece piece, int from, Position board, int[] targets, int count) {
+		long reached = attacks(from, board.occupied(PieceColor.WHITE) | board.occupied(PieceColor.BLACK));
+		for (; reached != 0; reached &= reached - 1)
+			targets[count++] = Long.numberOfTrailingZeros(reached);
+		return count;
+	}
+	
+	@Override
+	public int mailboxTargets(Piece piece, int from, MailboxPosition board, int[] targets, int count) {
+		for (int i = 0; i < lengths.length; i++) {
+			int step = mailboxSteps[i],
+			    cell = from;
+			for (int n = 0; n < lengths[i]; n++) {
+				cell += step;
+				if (MailboxPosition.offBoard(cell))
+					break; // ran into the border
+				targets[count++] = cell;
+				if (board.cellPiece(cell) != null)
+					break; // stop once we hit a piece
+			}
 		}
-		
-		while (i < max) {
-	    	x+=dx; y+=dy; i++;
-	    	ray.add(new int[]{x, y});
-	    	if (board.get(f+x,r+y) != null)
-	    		break; // stop once we hit a piece
-	    }
-		
-		return ray;
+		return count;
 	}
 
 }
@@ -0,0 +1,171 @@
+package model.pieces.types;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import model.board.Square;
+
+/**
+ * Magic bitboard tables giving the squares reached by a set of rays.
+ * For every square, only the squares that can block a ray matter (the last square
+ * of a ray is reached whether it is occupied or not). Multiplying these occupancy
+ * bits by a magic number gathers them in the top bits of the product, which then
+ * index a table of precomputed attack sets.
+ * The magic numbers are found by a seeded random search when the tables are built.
+ * http://chessprogramming.wikispaces.com/Magic+Bitboards
+ * @author Sebastian Paaske Trholm
+ */
+final class MagicAttacks {
+	private static final long SEED = 0x5EEDB17L; // fixed, so tables are the same between runs
+	private static final Map<String, MagicAttacks> BUILT = new HashMap<String, MagicAttacks>();
+	
+	private final long[] masks = new long[Square.NUM_SQUARES],  // squares that can block a ray
+	                     magics = new long[Square.NUM_SQUARES];
+	private final int[] shifts = new int[Square.NUM_SQUARES];
+	private final long[][] attacks = new long[Square.NUM_SQUARES][];
+	private long state = SEED; // of the random search
+	
+	/**
+	 * The tables for a set of rays, shared by every pattern with the same set of rays,
+	 * in whatever order.
+	 * @param dxs file step of each ray, usually one of -1, 0, 1
+	 * @param dys rank step of each ray, usually one of -1, 0, 1
+	 * @param lengths maximal number of steps along each ray
+	 * @return the tables for the rays
+	 */
+	static synchronized MagicAttacks of(int[] dxs, int[] dys, int[] lengths) {
+		String[] rays = new String[dxs.length];
+		for (int i = 0; i < rays.length; i++)
+			rays[i] = dxs[i] + "," + dys[i] + "," + lengths[i];
+		Arrays.sort(rays);
+		String key = Arrays.toString(rays);
+		MagicAttacks tables = BUILT.get(key);
+		if (tables == null) {
+			tables = new MagicAttacks(dxs, dys, lengths);
+			BUILT.put(key, tables);
+		}
+		return tables;
+	}
+	
+	private MagicAttacks(int[] dxs, int[] dys, int[] lengths) {
+		for (int from = 0; from < Square.NUM_SQUARES; from++) {
+			long mask = 0;
+			for (int i = 0; i < dxs.length; i++)
+				mask |= blockers(from, dxs[i], dys[i], lengths[i]);
+			
+			int bits = Long.bitCount(mask),
+			    size = 1 << bits;
+			long[] occupancies = new long[size],
+			       reached = new long[size];
+			long subset = 0;
+			for (int i = 0; i < size; i++) { // every subset of the mask
+				occupancies[i] = subset;
+				for (int ray = 0; ray < dxs.length; ray++)
+					reached[i] |= ray(from, dxs[ray], dys[ray], lengths[ray], subset);
+				subset = (subset - mask) & mask;
+			}
+			
+			masks[from] = mask;
+			if (bits == 0) { // nothing can block; a zero magic maps everything to entry 0
+				shifts[from] = Long.SIZE - 1;
+				attacks[from] = reached;
+				continue;
+			}
+			shifts[from] = Long.SIZE - bits;
+			findMagic(from, occupancies, reached);
+		}
+	}
+	
+	/**
+	 * Searches for a magic number that maps every occupancy to its entry without
+	 * destructive collisions, and fills the table of the square with it.
+	 */
+	private void findMagic(int from, long[] occupancies, long[] reached) {
+		int size = occupancies.length;
+		long[] table = new long[size];
+		int[] filledBy = new int[size]; // attempt that last filled each entry
+		for (int attempt = 1; ; attempt++) {
+			long magic = random() & random() & random(); // few bits work best
+			boolean collision = false;
+			for (int i = 0; i < size && !collision; i++) {
+				int index = (int)((occupancies[i] * magic) >>> shifts[from]);
+				if (filledBy[index] != attempt) {
+					filledBy[index] = attempt;
+					table[index] = reached[i];
+				} else if (table[index] != reached[i])
+					collision = true;
+			}
+			if (!collision) {
+				magics[from] = magic;
+				attacks[from] = table;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * The next number of a xorshift generator. java.util.Random is not used, as the
+	 * consecutive outputs of its 48-bit generator are too alike for the search.
+	 */
+	private long random() {
+		state ^= state >>> 12;
+		state ^= state << 25;
+		state ^= state >>> 27;
+		return state * 0x2545F4914F6CDD1DL;
+	}
+	
+	/**
+	 * The squares of a ray that can block it, i.e. all but the last one.
+	 * @param from index of the square the ray starts from
+	 * @param dx file step of the ray
+	 * @param dy rank step of the ray
+	 * @param length maximal number of steps along the ray
+	 * @return the squares of the ray that can block it, one bit per square index
+	 */
+	static long blockers(int from, int dx, int dy, int length) {
+		long squares = 0,
+		     last = 0;
+		int f = from % Square.MAX_FILE,
+		    r = from / Square.MAX_FILE;
+		for (int n = 0; n < length; n++) {
+			f += dx;
+			r += dy;
+			if (f < 0 || f >= Square.MAX_FILE || r < 0 || r >= Square.MAX_RANK)
+				break;
+			last = 1L << (r * Square.MAX_FILE + f);
+			squares |= last;
+		}
+		return squares & ~last;
+	}
+	
+	/**
+	 * The squares reached along a ray, walking it square by square.
+	 */
+	private static long ray(int from, int dx, int dy, int length, long occupied) {
+		long squares = 0;
+		int f = from % Square.MAX_FILE,
+		    r = from / Square.MAX_FILE;
+		for (int n = 0; n < length; n++) {
+			f += dx;
+			r += dy;
+			if (f < 0 || f >= Square.MAX_FILE || r < 0 || r >= Square.MAX_RANK)
+				break; // stop at the edge of the board
+			long bit = 1L << (r * Square.MAX_FILE + f);
+			squares |= bit;
+			if ((occupied & bit) != 0)
+				break; // stop once we hit a piece
+		}
+		return squares;
+	}
+	
+	/**
+	 * The squares reached along the rays from a square.
+	 * @param from index of the square, as given by IntSquare.position()
+	 * @param occupied the occupied squares, one bit per square index
+	 * @return the squares reached, including the first occupied square of each ray
+	 */
+	long attacks(int from, long occupied) {
+		return attacks[from][(int)(((occupied & masks[from]) * magics[from]) >>> shifts[from])];
+	}
+}
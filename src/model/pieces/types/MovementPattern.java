@@ -1,8 +1,11 @@
 package model.pieces.types;
 
 import java.util.List;
+import model.board.MailboxPosition;
 import model.board.Position;
+import model.board.Square;
 import model.pieces.Piece;
+import model.pieces.PieceColor;
 
 /**
  * Defines what movements a piece is allowed to make.
@@ -12,8 +15,75 @@ public interface MovementPattern {
 	/**
 	 * Get the legal move this MovementPattern provides the piece with in the given position
 	 * @param piece our piece
+	 * @param from the square our piece stands on
 	 * @param board the situation of the board
 	 * @return a list of legal moves as coordinate offsets
 	 */
-	public List<int[]> legalMoves(Piece piece, Position board);
+	public List<int[]> legalMoves(Piece piece, Square from, Position board);
+	
+	/**
+	 * Get the squares this MovementPattern lets the piece reach, without allocating.
+	 * As with legalMoves, squares holding pieces of either color are included.
+	 * @param piece our piece
+	 * @param from index of the square the piece stands on, as given by IntSquare.position()
+	 * @param board the situation of the board
+	 * @param targets buffer to append the indices of the reachable squares to
+	 * @param count number of squares already in targets
+	 * @return the number of squares in targets afterwards
+	 */
+	public int squareTargets(Piece piece, int from, Position board, int[] targets, int count);
+	
+	/**
+	 * Get the squares this MovementPattern lets a piece reach, as a set.
+	 * As with squareTargets, squares holding pieces of either color are included.
+	 * @param color color of the piece
+	 * @param from index of the square the piece stands on, as given by IntSquare.position()
+	 * @param occupied the occupied squares, one bit per square index
+	 * @return the reachable squares, one bit per square index
+	 */
+	public long reach(PieceColor color, int from, long occupied);
+	
+	/**
+	 * The squares a piece moving by this pattern attacks, i.e. could capture on
+	 * if they held an enemy piece.
+	 * @param color color of the piece
+	 * @param from index of the square the piece stands on, as given by IntSquare.position()
+	 * @param occupied the occupied squares, one bit per square index
+	 * @return the attacked squares, one bit per square index
+	 */
+	public long attacks(PieceColor color, int from, long occupied);
+	
+	/**
+	 * The squares from which a piece moving by this pattern attacks a given square;
+	 * the reverse of attacks, used to work backwards from a target.
+	 * @param color color of the attacking piece
+	 * @param to index of the attacked square
+	 * @param occupied the occupied squares, one bit per square index
+	 * @return the squares s such that attacks(color, s, occupied) contains to
+	 */
+	public long attackedFrom(PieceColor color, int to, long occupied);
+	
+	/**
+	 * The squares whose contents decide where a piece moving by this pattern can go:
+	 * the squares it reaches, the first blocker of each ray, and any square a move
+	 * requires to be empty. Anything placed on or removed from other squares leaves
+	 * the targets of the piece unchanged.
+	 * @param color color of the piece
+	 * @param from index of the square the piece stands on, as given by IntSquare.position()
+	 * @param occupied the occupied squares, one bit per square index
+	 * @return the squares looked at, one bit per square index
+	 */
+	public long dependencies(PieceColor color, int from, long occupied);
+	
+	/**
+	 * Get the cells this MovementPattern lets the piece reach on a mailbox board.
+	 * As with legalMoves, cells holding pieces of either color are included.
+	 * @param piece our piece
+	 * @param from mailbox cell the piece stands on
+	 * @param board the situation of the board
+	 * @param targets buffer to append the reachable cells to
+	 * @param count number of cells already in targets
+	 * @return the number of cells in targets afterwards
+	 */
+	public int mailboxTargets(Piece piece, int from, MailboxPosition board, int[] targets, int count);
 }
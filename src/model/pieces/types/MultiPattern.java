@@ -3,8 +3,11 @@ package model.pieces.types;
 import java.util.ArrayList;
 import java.util.List;
 
+import model.board.MailboxPosition;
 import model.board.Position;
+import model.board.Square;
 import model.pieces.Piece;
+import model.pieces.PieceColor;
 
 /**
  * Creates a MovementPattern from multiple MovementPatterns.
@@ -22,11 +25,57 @@ public class MultiPattern implements MovementPattern {
 	}
 	
 	@Override
-	public List<int[]> legalMoves(Piece piece, Position board) {
+	public List<int[]> legalMoves(Piece piece, Square from, Position board) {
 		List<int[]> moves = new ArrayList<int[]>(); 
 		for (MovementPattern pattern : patterns)
-			moves.addAll(pattern.legalMoves(piece, board));
+			moves.addAll(pattern.legalMoves(piece, from, board));
 		return moves;
 	}
+	
+	@Override
+	public int squareTargets(Piece piece, int from, Position board, int[] targets, int count) {
+		for (MovementPattern pattern : patterns)
+			count = pattern.squareTargets(piece, from, board, targets, count);
+		return count;
+	}
+	
+	@Override
+	public long attacks(PieceColor color, int from, long occupied) {
+		long attacked = 0;
+		for (MovementPattern pattern : patterns)
+			attacked |= pattern.attacks(color, from, occupied);
+		return attacked;
+	}
+	
+	@Override
+	public long attackedFrom(PieceColor color, int to, long occupied) {
+		long attackers = 0;
+		for (MovementPattern pattern : patterns)
+			attackers |= pattern.attackedFrom(color, to, occupied);
+		return attackers;
+	}
+	
+	@Override
+	public long reach(PieceColor color, int from, long occupied) {
+		long reached = 0;
+		for (MovementPattern pattern : patterns)
+			reached |= pattern.reach(color, from, occupied);
+		return reached;
+	}
+	
+	@Override
+	public long dependencies(PieceColor color, int from, long occupied) {
+		long looked = 0;
+		for (MovementPattern pattern : patterns)
+			looked |= pattern.dependencies(color, from, occupied);
+		return looked;
+	}
+	
+	@Override
+	public int mailboxTargets(Piece piece, int from, MailboxPosition board, int[] targets, int count) {
+		for (MovementPattern pattern : patterns)
+			count = pattern.mailboxTargets(piece, from, board, targets, count);
+		return count;
+	}
 
 }
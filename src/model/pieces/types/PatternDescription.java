@@ -0,0 +1,133 @@
+package model.pieces.types;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.board.Square;
+
+/**
+ * A declarative description of how a piece moves, to be compiled into a MovementPattern.
+ * A piece is described by the leaps and rays it may make. A leap goes straight to the
+ * square at an offset; a ray repeats a step until it leaves the board, hits a piece or
+ * reaches its length limit. Each leap and ray may be used to move, to capture, or both.
+ * Offsets are given from white's side of the board; for black pieces the ranks are
+ * mirrored, so forward-only pieces such as pawns can be described.
+ *
+ * The description is compiled once into per-square tables, so a custom piece is
+ * generated as quickly as the standard ones, e.g. an archbishop:
+ *   new PatternDescription().leaps(PatternDescription.KNIGHT).rays(PatternDescription.DIAGONAL).compile()
+ * @author Sebastian Paaske Trholm
+ */
+public class PatternDescription {
+	/**
+	 * What a leap or ray may be used for.
+	 */
+	public enum Mode {
+		/** moving to an empty square or capturing on it */
+		MOVE_OR_CAPTURE,
+		/** moving to an empty square only, as a pawn moves forward */
+		MOVE_ONLY,
+		/** capturing only, as a pawn captures diagonally */
+		CAPTURE_ONLY;
+	}
+	
+	/**
+	 * Length of a ray that is only limited by the edge of the board.
+	 */
+	public static final int UNLIMITED = Math.max(Square.MAX_FILE, Square.MAX_RANK);
+	
+	/** The four orthogonal steps, those of a rook. */
+	public static final int[][] ORTHOGONAL = { {0, 1}, {1, 0}, {0, -1}, {-1, 0} };
+	/** The four diagonal steps, those of a bishop. */
+	public static final int[][] DIAGONAL = { {1, 1}, {-1, 1}, {1, -1}, {-1, -1} };
+	/** The eight leaps of a knight. */
+	public static final int[][] KNIGHT = { {1, 2}, {2, 1}, {2, -1}, {1, -2},
+	                                       {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2} };
+	
+	private final List<int[]> leaps = new ArrayList<int[]>(), // {dx, dy, mode}
+	                          rays = new ArrayList<int[]>();  // {dx, dy, length, mode}
+	
+	/**
+	 * Adds a leap that may move or capture.
+	 * @param dx file offset
+	 * @param dy rank offset, from white's side
+	 * @return this description
+	 * @require dx != 0 || dy != 0
+	 */
+	public PatternDescription leap(int dx, int dy) {
+		return leap(dx, dy, Mode.MOVE_OR_CAPTURE);
+	}
+	
+	/**
+	 * Adds a leap.
+	 * @param dx file offset
+	 * @param dy rank offset, from white's side
+	 * @param mode what the leap may be used for
+	 * @return this description
+	 * @require dx != 0 || dy != 0
+	 */
+	public PatternDescription leap(int dx, int dy, Mode mode) {
+		assert dx != 0 || dy != 0 : "a leap must go somewhere";
+		leaps.add(new int[]{ dx, dy, mode.ordinal() });
+		return this;
+	}
+	
+	/**
+	 * Adds a leap for each of a set of offsets, all of which may move or capture.
+	 * @param offsets {dx, dy} pairs
+	 * @return this description
+	 */
+	public PatternDescription leaps(int[][] offsets) {
+		for (int[] offset : offsets)
+			leap(offset[0], offset[1]);
+		return this;
+	}
+	
+	/**
+	 * Adds a ray, only limited by the edge of the board, that may move or capture.
+	 * @param dx file step
+	 * @param dy rank step, from white's side
+	 * @return this description
+	 * @require dx != 0 || dy != 0
+	 */
+	public PatternDescription ray(int dx, int dy) {
+		return ray(dx, dy, UNLIMITED, Mode.MOVE_OR_CAPTURE);
+	}
+	
+	/**
+	 * Adds a ray.
+	 * @param dx file step
+	 * @param dy rank step, from white's side
+	 * @param length maximal number of steps along the ray
+	 * @param mode what the ray may be used for
+	 * @return this description
+	 * @require dx != 0 || dy != 0
+	 * @require length > 0
+	 */
+	public PatternDescription ray(int dx, int dy, int length, Mode mode) {
+		assert dx != 0 || dy != 0 : "a ray must go somewhere";
+		assert length > 0;
+		rays.add(new int[]{ dx, dy, Math.min(length, UNLIMITED), mode.ordinal() });
+		return this;
+	}
+	
+	/**
+	 * Adds a ray for each of a set of steps, all unlimited and able to move or capture.
+	 * @param steps {dx, dy} pairs
+	 * @return this description
+	 */
+	public PatternDescription rays(int[][] steps) {
+		for (int[] step : steps)
+			ray(step[0], step[1]);
+		return this;
+	}
+	
+	/**
+	 * Compiles the description into per-square tables.
+	 * Later changes to the description do not affect the compiled pattern.
+	 * @return a pattern moving as described
+	 */
+	public MovementPattern compile() {
+		return new CompiledPattern(leaps, rays);
+	}
+}
@@ -3,6 +3,7 @@ package model.pieces.types;
 import java.util.LinkedList;
 import java.util.List;
 
+import model.board.MailboxPosition;
 import model.board.Position;
 import model.board.Square;
 import model.pieces.Piece;
@@ -13,14 +14,34 @@ import model.pieces.PieceColor;
  * @author Sebastian Paaske Trholm
  */
 public class PawnPattern implements MovementPattern {
+	private static final long[][] ATTACKS = new long[PieceColor.values().length][Square.NUM_SQUARES],
+	                              PUSHES = new long[PieceColor.values().length][Square.NUM_SQUARES];
+	
+	static { // the diagonal squares and the squares straight ahead of each square, for each color
+		for (PieceColor color : PieceColor.values()) {
+			int dir = color == PieceColor.WHITE ? 1 : -1;
+			for (int from = 0; from < Square.NUM_SQUARES; from++) {
+				int file = from % Square.MAX_FILE,
+				    rank = from / Square.MAX_FILE + dir;
+				if (rank < 0 || rank >= Square.MAX_RANK)
+					continue;
+				PUSHES[color.ordinal()][from] = 1L << (rank * Square.MAX_FILE + file);
+				if (from / Square.MAX_FILE == (dir == 1 ? 1 : Square.MAX_RANK - 2)) // starting row
+					PUSHES[color.ordinal()][from] |= 1L << ((rank + dir) * Square.MAX_FILE + file);
+				if (file > 0)
+					ATTACKS[color.ordinal()][from] |= 1L << (rank * Square.MAX_FILE + file - 1);
+				if (file < Square.MAX_FILE - 1)
+					ATTACKS[color.ordinal()][from] |= 1L << (rank * Square.MAX_FILE + file + 1);
+			}
+		}
+	}
 
 	@Override
-	public List<int[]> legalMoves(Piece piece, Position board) {
+	public List<int[]> legalMoves(Piece piece, Square from, Position board) {
 		LinkedList<int[]> moves = new LinkedList<int[]>();
 		PieceColor color = piece.color();
-		Square square = piece.location();
-		int rank = square.rank(),
-	    file = square.file();
+		int rank = from.rank(),
+	    file = from.file();
 		boolean isWhite = color == PieceColor.WHITE;
 		int dir = isWhite ? 1 : -1; // direction to move
 		{
@@ -50,5 +71,88 @@ public class PawnPattern implements MovementPattern {
 		}
 		return moves;
 	}
+	
+	@Override
+	public int squareTargets(Piece piece, int from, Position board, int[] targets, int count) {
+		PieceColor color = piece.color();
+		boolean isWhite = color == PieceColor.WHITE;
+		int rank = from / Square.MAX_FILE + 1,
+		    file = from % Square.MAX_FILE + 1;
+		if (rank == (isWhite ? Square.MAX_RANK : 1))
+			return count; // on the final row, there is nowhere to go
+		int forward = isWhite ? Square.MAX_FILE : -Square.MAX_FILE,
+		    ahead = from + forward;
+		if (board.get(ahead) == null) { // can't capture by going forward
+			targets[count++] = ahead;
+			// can't skip across a piece
+			if (rank == (isWhite ? 2 : Square.MAX_RANK - 1) // starting row
+			&&  board.get(ahead + forward) == null)
+				targets[count++] = ahead + forward;
+		}
+		if (file > 1) {
+			Piece p = board.get(ahead - 1);
+			if (p != null && p.color() != color)
+				targets[count++] = ahead - 1;
+		}
+		if (file < Square.MAX_FILE) {
+			Piece p = board.get(ahead + 1);
+			if (p != null && p.color() != color)
+				targets[count++] = ahead + 1;
+		}
+		return count;
+	}
+	
+	@Override
+	public long attacks(PieceColor color, int from, long occupied) {
+		return ATTACKS[color.ordinal()][from];
+	}
+	
+	@Override
+	public long attackedFrom(PieceColor color, int to, long occupied) {
+		return ATTACKS[color.other().ordinal()][to]; // pawns of the other color look the other way
+	}
+	
+	@Override
+	public long reach(PieceColor color, int from, long occupied) {
+		int c = color.ordinal();
+		long ahead = color == PieceColor.WHITE ? (1L << from) << Square.MAX_FILE 
+		                                       : (1L << from) >>> Square.MAX_FILE;
+		long pushes = (ahead & occupied) != 0 ? 0 // can't capture by going forward, nor skip across a piece
+		                                      : PUSHES[c][from] & ~occupied;
+		return pushes | (ATTACKS[c][from] & occupied);
+	}
+	
+	@Override
+	public long dependencies(PieceColor color, int from, long occupied) {
+		return ATTACKS[color.ordinal()][from] | PUSHES[color.ordinal()][from];
+	}
+	
+	@Override
+	public int mailboxTargets(Piece piece, int from, MailboxPosition board, int[] targets, int count) {
+		PieceColor color = piece.color();
+		boolean isWhite = color == PieceColor.WHITE;
+		int forward = isWhite ? MailboxPosition.WIDTH : -MailboxPosition.WIDTH,
+		    ahead = from + forward;
+		if (MailboxPosition.offBoard(ahead))
+			return count; // on the final row, there is nowhere to go
+		
+		if (board.cellPiece(ahead) == null) { // can't capture by going forward
+			targets[count++] = ahead;
+			
+			// can't skip across a piece; the double step never leaves the board
+			int rank = MailboxPosition.square(from).rank();
+			if (rank == (isWhite ? 2 : Square.MAX_RANK - 1) // starting row
+			&&  board.cellPiece(ahead + forward) == null)
+				targets[count++] = ahead + forward;
+		}
+		
+		// sentinel cells hold no pieces, so they are never captured
+		for (int side = -1; side <= 1; side += 2) {
+			Piece p = board.cellPiece(ahead + side);
+			if (p != null && p.color() != color)
+				targets[count++] = ahead + side;
+		}
+		return count;
+	}
 
 }
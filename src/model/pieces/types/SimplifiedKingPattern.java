@@ -5,10 +5,12 @@ package model.pieces.types;
  * @author Sebastian Paaske Trholm
  */
 public class SimplifiedKingPattern extends JumpingPattern {
+	private static final int[][] OFFSETS = { {1, 0}, {0, 1}, {-1, 0}, {0, -1},
+	                                         {1, 1}, {-1, 1}, {1, -1}, {-1, -1} };
+	
 	@Override
 	protected final int[][] jumpOffsets() {
-		return new int[][] { {1, 0}, {0, 1}, {-1, 0}, {0, -1},
-		                     {1, 1}, {-1, 1}, {1, -1}, {-1, -1} };
+		return OFFSETS;
 	}
 
 }
@@ -1,13 +1,11 @@
 package model.players;
 
-import java.util.Collection;
 import java.util.List;
-import java.util.LinkedList;
 import java.util.Random;
 
 import model.GameManager;
 import model.board.*;
-import model.pieces.*;
+import model.movegen.KingSafety;
 
 /**
  * Moves randomly, but still attempts to protect his king from harm.
@@ -16,6 +14,7 @@ import model.pieces.*;
 public class CleverRandomPlayer extends AbstractPlayer {
 
 	private Random random;
+	private KingSafety safety = new KingSafety();
 	
 	/**
 	 * Create a new CleverRandomPlayer.
@@ -44,34 +43,9 @@ public class CleverRandomPlayer extends AbstractPlayer {
 
 	@Override
 	public void takeTurn(GameManager gameManager) {
-		SquareFactory sqFactory = new IntSquareFactory();
 		List<Move> allMoves = gameManager.game.allValidMoves();
-		UpdatablePosition position = new ArrayPosition(gameManager.game.position());
-		PieceColor color = gameManager.game.toMove();
-		List<Move> legalMoves = new LinkedList<Move>(); // moves that won't let the 
-		                                                // other player kill us next turn
-		
-		moveLoop: for (Move move : allMoves) {
-			ArrayPosition pos = (ArrayPosition)position.deepClone(); // clone it so we can try a move
-			pos.get(move.from).moveTo(pos, move.to);
-			for (Square sq : sqFactory) {
-				Piece p = pos.get(sq);
-				if ((p == null) || (p.color() == color))
-					continue;
-				
-				Collection<Square> canTake = p.validSquares(pos);
-				for (Square target : canTake) {
-					Piece targetPiece = pos.get(target);
-					if (targetPiece != null
-					&&	targetPiece.color() == color 
-				    &&  targetPiece.type() == PieceType.KING) // oh shit, they can take our king
-						continue moveLoop;                    // won't make that move!
-				}
-					
-			}
-			// At this point, we know that making this move doesn't jeopardize our king next turn
-			legalMoves.add(move);
-		}
+		List<Move> legalMoves = safety.safeMoves(gameManager.game.position(), // moves that won't let the 
+		                                         gameManager.game.toMove());  // other player kill us next turn
 		
 		if (legalMoves.size() > 0)
 			gameManager.execute(
@@ -1,10 +1,7 @@
 package model.players;
 
-import java.util.PriorityQueue;
-
 import model.Game;
 import model.GameManager;
-import model.board.Move;
 import model.players.minimax.*;
 import model.players.minimax.estimators.PositionBoardEstimator;
 
@@ -15,17 +12,62 @@ import model.players.minimax.estimators.PositionBoardEstimator;
  */
 public class MinimaxPlayer extends AbstractPlayer {
 	private static final int STANDARD_SEARCH_DEPTH = 4;
-	private Minimax myMinimax;
+	private static final int STANDARD_HASH_MEGABYTES = 16;
+	private MinimaxWithAlphaBeta myMinimax;
+	private SearchLimits limits;
 	
 	/**
 	 * Creates a new MinimaxPlayer.
+	 * Moves are searched by iterative deepening until one of the limits is reached,
+	 * so a time limit bounds how long every turn takes.
+	 * The transposition table is kept between turns, so positions searched for one
+	 * move help the search for the next.
+	 * The root moves are searched on the given number of threads, which at a fixed
+	 * depth finds the same move as searching on one. The threads are shut down by close.
 	 * @param name name of the player
-	 * @param searchDepth search depth to use
+	 * @param limits limits of the search for each move
+	 * @param hashMegabytes size of the transposition table in megabytes, 0 for none
+	 * @param threads number of threads to search with
+	 * @require limits != null && hashMegabytes >= 0 && threads >= 1
 	 */
-	public MinimaxPlayer(String name, int searchDepth) {
+	public MinimaxPlayer(String name, SearchLimits limits, int hashMegabytes, int threads) {
 		super(name);
-		this.myMinimax = new MinimaxWithAlphaBeta(new PositionBoardEstimator(), searchDepth);
+		assert limits != null && hashMegabytes >= 0 && threads >= 1;
+		this.limits = limits;
+		this.myMinimax = new MinimaxWithAlphaBeta(new PositionBoardEstimator(), limits.depth(),
+		                                          hashMegabytes > 0 ? new TranspositionTable(hashMegabytes) : null,
+		                                          threads);
+	}
+	/**
+	 * Creates a new MinimaxPlayer searching on the calling thread.
+	 * @param name name of the player
+	 * @param limits limits of the search for each move
+	 * @param hashMegabytes size of the transposition table in megabytes, 0 for none
+	 */
+	public MinimaxPlayer(String name, SearchLimits limits, int hashMegabytes) {
+		this(name, limits, hashMegabytes, 1);
+	}
+	/**
+	 * Creates a new MinimaxPlayer searching to a fixed depth.
+	 * @param name name of the player
+	 * @param searchDepth search depth to use
+	 * @param hashMegabytes size of the transposition table in megabytes, 0 for none
+	 */
+	public MinimaxPlayer(String name, int searchDepth, int hashMegabytes) {
+		this(name, SearchLimits.depth(searchDepth), hashMegabytes);
 	}
+	/**
+	 * Creates a new MinimaxPlayer with the default transposition table size.
+	 * @param name name of the player
+	 * @param limits limits of the search for each move
+	 */
+	public MinimaxPlayer(String name, SearchLimits limits) { this(name, limits, STANDARD_HASH_MEGABYTES); }
+	/**
+	 * Creates a new MinimaxPlayer with the default transposition table size.
+	 * @param name name of the player
+	 * @param searchDepth search depth to use
+	 */
+	public MinimaxPlayer(String name, int searchDepth) { this(name, searchDepth, STANDARD_HASH_MEGABYTES); }
 	/**
 	 * Creates a new MinimaxPlayer with the default search depth.
 	 * @param name name of the player
@@ -44,9 +86,17 @@ public class MinimaxPlayer extends AbstractPlayer {
 	@Override
 	public void takeTurn(GameManager gameManager) {
 		Game game = gameManager.game;
-		PriorityQueue<Move> moveQueue = myMinimax.moveRanking(game.position(), game.toMove());
+		SearchResult result = myMinimax.search(game.position(), game.toMove(), limits);
 		
-		gameManager.execute(moveQueue.peek());
+		gameManager.execute(result.best().move());
+	}
+	
+	/**
+	 * Shuts down the search threads of the player, if it has any.
+	 * The player may still take turns; the threads are started again when needed.
+	 */
+	public void close() {
+		myMinimax.close();
 	}
 
 }
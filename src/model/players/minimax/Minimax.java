@@ -1,8 +1,5 @@
 package model.players.minimax;
 
-import java.util.PriorityQueue;
-
-import model.board.Move;
 import model.board.Position;
 import model.pieces.PieceColor;
 
@@ -12,12 +9,12 @@ import model.pieces.PieceColor;
  */
 public interface Minimax {
 	/**
-	 * Ranks all possible moves after which one has the minimal maximum loss.
+	 * Searches every possible move once and ranks them by their minimax value,
+	 * the move with the minimal maximum loss first.
 	 * @param board board position
 	 * @param toMove player to move
-	 * @return an ordered queue of moves with the best one ranked first
+	 * @return the ranking of the moves
 	 */
-	public abstract PriorityQueue<Move> moveRanking(Position board,
-			final PieceColor toMove);
+	public abstract SearchResult search(Position board, PieceColor toMove);
 
 }
\ No newline at end of file
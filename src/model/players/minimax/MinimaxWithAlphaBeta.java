@@ -1,94 +1,379 @@
 package model.players.minimax;
 
 import model.board.*;
+import model.movegen.MoveCode;
+import model.movegen.MoveGenerator;
+import model.movegen.MoveOrdering;
+import model.movegen.StagedMoveIterator;
 import model.pieces.*;
 import model.players.minimax.estimators.BoardEstimator;
 
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implementation of Minimax with alpha-beta pruning.
+ * Given a TranspositionTable, the search remembers the result and best move of every
+ * interior node, cuts off transpositions already searched to the same depth and tries
+ * the remembered best move first.
+ * Moves are ordered by a MoveOrdering: captures by MVV-LVA, then the killer moves
+ * of the ply, then the other quiet moves by history score.
+ * The root is searched by iterative deepening within SearchLimits, and every node
+ * on the way keeps the principal variation below it, so the result has a line of
+ * play for every move that is best so far when searched.
+ *
+ * Searching on several threads, the first root move of each iteration is searched
+ * alone and the rest are shared out to helper searches on a ForkJoinPool, each with
+ * its own copy of the position, move buffers and move ordering. The helpers share
+ * the best score found so far as their alpha, and ties between root moves go to the
+ * one tried first, so at a fixed depth the best move and its score are the same as
+ * on one thread. Only the bounds of the moves that fail low, and the nodes searched,
+ * depend on the order in which the threads finish.
  * http://en.wikipedia.org/wiki/Minimax
  * http://en.wikipedia.org/wiki/Alpha-beta_pruning
  * @author Sebastian Paaske Trholm
  */
 public class MinimaxWithAlphaBeta implements Minimax {
-	private static SquareFactory sqFactory = new IntSquareFactory();
 	private BoardEstimator estimator;
 	private int depth;
+	private MoveGenerator generator = new MoveGenerator();
+	private int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+	private MoveOrdering ordering;
+	private StagedMoveIterator[] iterators; // one per ply, indexed by the depth left
+	private int[][] pv;                     // principal variation found below each ply, by ply
+	private int[] pvLength;
+	private TranspositionTable table;       // null if none
+	private Random random;                  // order the root moves are first tried in
+	
+	// Limits of the running search. Only iterative deepening is abortable;
+	// once aborted, every node returns at once and the iteration is thrown away.
+	private long nodes, nodeLimit, deadline;
+	private boolean abortable, aborted;
+	
+	// Parallel root search; the helpers are null when searching on one thread,
+	// the pool is null until a search needs it and after close
+	private ForkJoinPool pool;
+	private MinimaxWithAlphaBeta[] helpers;
+	private MinimaxWithAlphaBeta master;       // the search a helper works for, null if none
+	private UpdatablePosition helperPosition;  // a helper's own copy of the root position
+	private final AtomicLong sharedNodes = new AtomicLong(); // nodes of all threads, roughly
+	private volatile boolean stopped;          // set by the first helper to reach a limit
+	
+	private static final int TIME_CHECK_MASK = 1023; // look at the clock every 1024 nodes
 	
 	/**
-	 * Creates a new Minimax.
+	 * Creates a new Minimax without a transposition table.
 	 * @param estimator estimator for board positions
 	 * @param depth depth to iterate
 	 */
 	public MinimaxWithAlphaBeta(BoardEstimator estimator, int depth) {
+		this(estimator, depth, null);
+	}
+	
+	/**
+	 * Creates a new Minimax searching on the calling thread.
+	 * @param estimator estimator for board positions
+	 * @param depth depth to iterate
+	 * @param table transposition table to use, possibly shared with other searches; null for none
+	 * @require depth <= TranspositionTable.MAX_DEPTH
+	 */
+	public MinimaxWithAlphaBeta(BoardEstimator estimator, int depth, TranspositionTable table) {
+		this(estimator, depth, table, 1);
+	}
+	
+	/**
+	 * Creates a new Minimax.
+	 * @param estimator estimator for board positions
+	 * @param depth depth to iterate
+	 * @param table transposition table to use, possibly shared with other searches; null for none
+	 * @param threads number of threads to search the root moves with; 1 searches on the calling thread
+	 * @require depth <= TranspositionTable.MAX_DEPTH && threads >= 1
+	 */
+	public MinimaxWithAlphaBeta(BoardEstimator estimator, int depth, TranspositionTable table, int threads) {
+		this(estimator, depth, table, threads, new Random());
+	}
+	
+	/**
+	 * Creates a new Minimax that shuffles the root moves with the given random source.
+	 * Two searches given equally seeded sources try the root moves in the same order,
+	 * so at a fixed depth they find the same best move, whatever their numbers of threads.
+	 * @param estimator estimator for board positions
+	 * @param depth depth to iterate
+	 * @param table transposition table to use, possibly shared with other searches; null for none
+	 * @param threads number of threads to search the root moves with; 1 searches on the calling thread
+	 * @param random source of the order the root moves are first tried in
+	 * @require depth <= TranspositionTable.MAX_DEPTH && threads >= 1 && random != null
+	 */
+	public MinimaxWithAlphaBeta(BoardEstimator estimator, int depth, TranspositionTable table, int threads,
+	                            Random random) {
+		assert depth <= TranspositionTable.MAX_DEPTH && threads >= 1 && random != null;
 		this.estimator = estimator;
 		this.depth = depth;
+		this.table = table;
+		this.random = random;
+		this.ordering = new MoveOrdering(depth + 1);
+		this.iterators = new StagedMoveIterator[0];
+		ensurePlies(depth);
+		if (threads > 1) {
+			helpers = new MinimaxWithAlphaBeta[threads];
+			for (int i = 0; i < threads; i++) {
+				helpers[i] = new MinimaxWithAlphaBeta(estimator, depth, table);
+				helpers[i].master = this;
+			}
+		}
+	}
+	
+	/**
+	 * Shuts down the threads of a parallel search, if they are running.
+	 * A later search starts them again, so closing more than once does no harm.
+	 */
+	public void close() {
+		if (pool != null)
+			pool.shutdown();
+		pool = null;
+	}
+	
+	@Override
+	public SearchResult search(Position board, PieceColor toMove) {
+		return search(board, toMove, SearchLimits.depth(depth));
 	}
 	
-	public PriorityQueue<Move> moveRanking(Position board, final PieceColor toMove) {
-		final ArrayPosition position = new ArrayPosition(board);
+	/**
+	 * Searches by iterative deepening: searches to depth 1, 2, ... until a limit is
+	 * reached, trying the best root move of each iteration first in the next one.
+	 * Each iteration searches every root move once, the first with a full window
+	 * and the rest with alpha raised to the best score so far.
+	 * The first iteration always completes; an iteration cut short by a limit is
+	 * thrown away.
+	 * @param board board position
+	 * @param toMove player to move
+	 * @param limits limits of the search
+	 * @return the ranking of the last completed iteration
+	 */
+	public SearchResult search(Position board, PieceColor toMove, SearchLimits limits) {
+		boolean bitboards = board instanceof BitboardPosition;
+		UpdatablePosition position = searchPosition(board, bitboards);
+		int count = generator.generate(position, toMove, rootMoves);
+		Root root = new Root(Arrays.copyOf(rootMoves, count));
+		int[] moves = root.moves;
+		for (int i = count - 1; i > 0; i--) { // Make the next move non-deterministic.
+			int j = random.nextInt(i + 1), move = moves[i];
+			moves[i] = moves[j];
+			moves[j] = move;
+		}
 		
-		Comparator<Move> comparator = new Comparator<Move>() {
-			Map<Move, Integer> moveRanking = new HashMap<Move, Integer>();
+		ordering.age(); // what was learned for the last move matters less for this one
+		nodes = 0;
+		nodeLimit = limits.nodes() == SearchLimits.NONE ? Long.MAX_VALUE : limits.nodes();
+		deadline = limits.millis() == SearchLimits.NONE ? Long.MAX_VALUE 
+		                                                : System.nanoTime() + limits.millis() * 1000000;
+		if (helpers != null && count > 1) {
+			stopped = false;
+			for (MinimaxWithAlphaBeta helper : helpers) {
+				helper.helperPosition = helper.searchPosition(board, bitboards);
+				helper.ordering.age();
+				helper.nodeLimit = Long.MAX_VALUE; // counted together in sharedNodes
+				helper.deadline = deadline;
+			}
+		}
+		SearchResult result = new SearchResult(new ArrayList<SearchResult.RankedMove>(), 0, 0);
+		for (int iteration = 1; iteration <= limits.depth() && count > 0; iteration++) {
+			ensurePlies(iteration);
+			abortable = iteration > 1;
+			root.best.set(Root.NONE);
+			searchRootMove(position, toMove, iteration, root, 0);
+			if (helpers != null && count > 1 && !aborted)
+				searchInParallel(root, toMove, iteration);
+			else
+				for (int i = 1; i < count && !aborted; i++)
+					searchRootMove(position, toMove, iteration, root, i);
+			if (aborted)
+				break;
+			
+			result = result(root, iteration);
+			// Best first, the rest in the same order; failed-low bounds depend on the
+			// order the moves were searched in, so they do not reorder the moves.
+			int best = Root.index(root.best.get());
+			int move = moves[best];
+			System.arraycopy(moves, 0, moves, 1, best);
+			moves[0] = move;
+		}
+		abortable = aborted = false;
+		return result;
+	}
+	
+	/**
+	 * Searches every root move but the first on the helpers, and waits for them.
+	 */
+	private void searchInParallel(final Root root, final PieceColor toMove, final int iteration) {
+		root.next.set(1);
+		sharedNodes.set(nodes);
+		if (pool == null)
+			pool = new ForkJoinPool(helpers.length);
+		final List<RootTask> tasks = new ArrayList<RootTask>(helpers.length);
+		for (MinimaxWithAlphaBeta helper : helpers) {
+			helper.ensurePlies(iteration);
+			helper.abortable = abortable;
+			helper.aborted = false;
+			helper.nodes = 0;
+			tasks.add(new RootTask(helper, root, toMove, iteration));
+		}
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
 			
 			@Override
-			public int compare(Move o1, Move o2) {
-				if (!moveRanking.containsKey(o1)) {
-					ArrayPosition posCopy = (ArrayPosition)(position.deepClone());
-					Piece p = posCopy.get(o1.from);
-					p.moveTo(posCopy, o1.to);
-					int rank = minimax(posCopy, depth-1, -Integer.MAX_VALUE, Integer.MAX_VALUE, toMove.other());
-					//System.out.printf("%s = %d\n", o1.toString(), rank);
-					moveRanking.put(o1, rank);
-				}
-				if (!moveRanking.containsKey(o2)) {
-					ArrayPosition posCopy = (ArrayPosition)(position.deepClone());
-					Piece p = posCopy.get(o2.from);
-					p.moveTo(posCopy, o2.to);
-					int rank = minimax(posCopy, depth-1, -Integer.MAX_VALUE, Integer.MAX_VALUE, toMove.other());
-					//System.out.printf("%s = %d\n", o2.toString(), rank);
-					moveRanking.put(o2, rank);
-				}
-				
-				int r1 = moveRanking.get(o1),
-				    r2 = moveRanking.get(o2);
-				
-				return r1 > r2 ?  1 :
-					   r1 < r2 ? -1 :
-						   		  0;
-			}		
-		};
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+		for (MinimaxWithAlphaBeta helper : helpers)
+			nodes += helper.nodes;
+		aborted = stopped;
+	}
+	
+	/**
+	 * Searches root moves handed out by the root on one helper, until none are left.
+	 */
+	private static final class RootTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final MinimaxWithAlphaBeta helper;
+		private final Root root;
+		private final PieceColor toMove;
+		private final int iteration;
 		
-		PriorityQueue<Move> moveRanking = new PriorityQueue<Move>(100, comparator);
+		RootTask(MinimaxWithAlphaBeta helper, Root root, PieceColor toMove, int iteration) {
+			this.helper = helper;
+			this.root = root;
+			this.toMove = toMove;
+			this.iteration = iteration;
+		}
 		
-		List<Move> moves = new LinkedList<Move>();
-		for (Square sq : sqFactory) {
-			Piece p = position.get(sq);
-			if ((p == null) || (p.color() != toMove))
-				continue;
-			
-			for (Square target : p.validSquares(position)) {
-				Move m = new Move(sq, target);
-				moves.add(m);
-			}
+		@Override
+		protected void compute() {
+			for (int i = root.next.getAndIncrement(); i < root.moves.length && !helper.aborted;
+			     i = root.next.getAndIncrement())
+				helper.searchRootMove(helper.helperPosition, toMove, iteration, root, i);
+		}
+	}
+	
+	/**
+	 * Searches one root move, with alpha raised to the best score found so far.
+	 * A move tried before the best one is searched as if it came first, so that it is
+	 * ranked best if it scores the same; a move tried after it has to beat it.
+	 */
+	private void searchRootMove(UpdatablePosition position, PieceColor toMove, int iteration, Root root, int i) {
+		long best = root.best.get();
+		int alpha = -Integer.MAX_VALUE;
+		if (best != Root.NONE) {
+			alpha = Root.score(best);
+			if (Root.index(best) > i && alpha > -Integer.MAX_VALUE)
+				alpha--;
+		}
+		int move = root.moves[i];
+		position.makeMove(MoveCode.from(move), MoveCode.to(move));
+		int score = -minimax(position, iteration-1, 1, -Integer.MAX_VALUE, -alpha, toMove.other());
+		position.unmakeMove();
+		if (aborted)
+			return;
+		root.scores[i] = score;
+		root.exact[i] = best == Root.NONE || score > alpha; // otherwise it failed low
+		root.lines[i] = new int[root.exact[i] ? pvLength[1] + 1 : 1];
+		root.lines[i][0] = move;
+		System.arraycopy(pv[1], 0, root.lines[i], 1, root.lines[i].length - 1);
+		if (root.exact[i])
+			root.raise(score, i);
+	}
+	
+	/**
+	 * The root moves of an iteration and what is known about them, shared by the
+	 * threads searching them. Each move is written by the one thread searching it.
+	 */
+	private static final class Root {
+		/**
+		 * Value of best before any move is searched.
+		 */
+		static final long NONE = Long.MIN_VALUE;
+		
+		final int[] moves, scores;
+		final boolean[] exact;
+		final int[][] lines;                      // principal variation of each move
+		final AtomicInteger next = new AtomicInteger(); // next move to hand out
+		final AtomicLong best = new AtomicLong(NONE);   // score and index of the best move
+		
+		Root(int[] moves) {
+			this.moves = moves;
+			this.scores = new int[moves.length];
+			this.exact = new boolean[moves.length];
+			this.lines = new int[moves.length][];
+		}
+		
+		/**
+		 * Makes a move the best one if it scores higher, or the same and was tried first.
+		 * The best move is kept as its score above its complemented index, so the
+		 * best of two is simply the larger.
+		 */
+		void raise(int score, int index) {
+			long candidate = ((long)score << 32) | (0xFFFFFFFFL - index);
+			for (long current = best.get(); candidate > current; current = best.get())
+				if (best.compareAndSet(current, candidate))
+					return;
 		}
 		
-		// Make the next move non-deterministic.
-		Collections.shuffle(moves);
+		static int score(long best) {
+			return (int)(best >> 32);
+		}
 		
-		for (Move m : moves) {
-			moveRanking.add(m);
+		static int index(long best) {
+			return (int)(0xFFFFFFFFL - (best & 0xFFFFFFFFL));
+		}
+	}
+	
+	/**
+	 * Builds the result of an iteration: the best move first, then the rest by score.
+	 */
+	private SearchResult result(Root root, int iteration) {
+		int count = root.moves.length, best = Root.index(root.best.get());
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++)
+			order[i] = i;
+		order[0] = best;
+		order[best] = 0;
+		for (int i = 2; i < count; i++) { // insertion sort; the best stays first
+			int index = order[i], j = i;
+			for (; j > 1 && (root.scores[order[j - 1]] < root.scores[index]
+			             || root.scores[order[j - 1]] == root.scores[index] && order[j - 1] > index); j--)
+				order[j] = order[j - 1];
+			order[j] = index;
 		}
 		
-		return moveRanking;
+		List<SearchResult.RankedMove> ranking = new ArrayList<SearchResult.RankedMove>(count);
+		for (int i : order) {
+			List<Move> line = new ArrayList<Move>(root.lines[i].length);
+			for (int move : root.lines[i])
+				line.add(MoveCode.toMove(move));
+			ranking.add(new SearchResult.RankedMove(line.get(0), root.scores[i], root.exact[i], line));
+		}
+		return new SearchResult(ranking, iteration, nodes);
+	}
+	
+	/**
+	 * Makes room for searching a number of plies deep.
+	 */
+	private void ensurePlies(int plies) {
+		if (iterators.length > plies)
+			return;
+		int size = iterators.length;
+		iterators = Arrays.copyOf(iterators, plies + 1);
+		for (int i = size; i < iterators.length; i++)
+			iterators[i] = new StagedMoveIterator(generator, ordering);
+		pv = new int[plies + 1][plies + 1];
+		pvLength = new int[plies + 1];
 	}
 	
 	/**
@@ -97,42 +382,125 @@ public class MinimaxWithAlphaBeta implements Minimax {
 	 * http://en.wikipedia.org/wiki/Alpha-beta_pruning
 	 * @param board board position to work with
 	 * @param depthLeft depth left to iterate
+	 * @param ply number of moves made since the root
 	 * @param toMove whose turn it is
 	 * @param alpha alpha
 	 * @param beta beta
 	 * @return best possible value according to the algorithm
 	 */
-	private int minimax(final Position board, int depthLeft, int alpha, int beta, PieceColor toMove) {
+	private int minimax(final Position board, int depthLeft, int ply, int alpha, int beta, PieceColor toMove) {
+		nodes++;
+		if (abortable && (nodes >= nodeLimit 
+		              || (nodes & TIME_CHECK_MASK) == 0 && limitReached())) {
+			aborted = true;
+			if (master != null)
+				master.stopped = true; // stop the other helpers too
+			return 0;
+		}
+		pvLength[ply] = 0;
 		boolean hadMoves = false;
-		EstimatableArrayPosition position = EstimatableArrayPosition.from(board, estimator);
+		// Bitboards estimate cheaply from scratch, other positions keep a running estimate
+		UpdatablePosition position = board instanceof BitboardPosition
+		                           ? (BitboardPosition)board
+		                           : EstimatableArrayPosition.from(board, estimator);
 		
 		if (depthLeft > 0) {
-			miniMaxLoop:
-			for (Square sq : sqFactory) {
-				Piece p = position.get(sq);
-				if ((p == null) || (p.color() != toMove))
-					continue;
-				
-				for (Square target : p.validSquares(position)) {
-					hadMoves = true;
-					//EstimatableArrayPosition posClone = (EstimatableArrayPosition)position.deepClone();
-					EstimatableArrayPosition posClone = position;
-					Piece targetP = posClone.get(target);
-					Piece newP = posClone.get(sq);
-					newP.moveTo(posClone, target);
-					alpha = Math.max(alpha, -minimax(posClone, depthLeft-1, -beta, -alpha, toMove.other()));
-					newP.moveTo(posClone, sq);
-					posClone.set(target, targetP);
-					if (beta <= alpha) {
-						break miniMaxLoop;
+			long key = 0;
+			int hashMove = StagedMoveIterator.NONE;
+			if (table != null) {
+				key = position.hashKey(toMove);
+				long entry = table.probe(key);
+				if (entry != TranspositionTable.MISS) {
+					hashMove = TranspositionTable.move(entry);
+					int score = TranspositionTable.score(entry);
+					// only results of searches to exactly this depth are used, so the table 
+					// never changes the result of the search, only how quickly it is found
+					if (TranspositionTable.depth(entry) == depthLeft) {
+						switch (TranspositionTable.bound(entry)) {
+						case TranspositionTable.EXACT:
+							return score;
+						case TranspositionTable.LOWER:
+							if (score >= beta)
+								return score;
+							break;
+						case TranspositionTable.UPPER:
+							if (score <= alpha)
+								return score;
+							break;
+						}
 					}
 				}
 			}
+			
+			int originalAlpha = alpha,
+			    bestMove = hashMove; // keep the old best move unless a move raises alpha
+			StagedMoveIterator moves = iterators[depthLeft];
+			moves.reset(position, toMove, hashMove, ply);
+			for (int move = moves.next(); move != StagedMoveIterator.NONE; move = moves.next()) {
+				hadMoves = true;
+				position.makeMove(MoveCode.from(move), MoveCode.to(move));
+				int score = -minimax(position, depthLeft-1, ply+1, -beta, -alpha, toMove.other());
+				position.unmakeMove();
+				if (aborted)
+					return 0;
+				if (score > alpha) {
+					alpha = score;
+					bestMove = move;
+					pv[ply][0] = move;
+					System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+					pvLength[ply] = pvLength[ply + 1] + 1;
+				}
+				if (beta <= alpha) {
+					ordering.cutoff(move, ply, depthLeft);
+					break;
+				}
+			}
+			
+			if (table != null && hadMoves)
+				table.store(key, depthLeft, alpha >= beta ? TranspositionTable.LOWER
+				                          : alpha > originalAlpha ? TranspositionTable.EXACT
+				                          : TranspositionTable.UPPER, alpha, bestMove);
 		}
 		if (hadMoves) {
 			return alpha;
 		} else {
-			return (toMove == PieceColor.BLACK ? -1 : 1) * position.estimate();
+			return (toMove == PieceColor.BLACK ? -1 : 1) * estimate(position);
 		}
 	}
+	
+	/**
+	 * Whether the time or node limit is reached, looked at every TIME_CHECK_MASK + 1 nodes.
+	 * Helpers count their nodes together, and stop as soon as one of them is stopped.
+	 */
+	private boolean limitReached() {
+		if (System.nanoTime() >= deadline)
+			return true;
+		return master != null && (master.stopped
+		                       || master.sharedNodes.addAndGet(TIME_CHECK_MASK + 1) >= master.nodeLimit);
+	}
+	
+	/**
+	 * Creates a position for the search to update in place.
+	 * Its pieces are flyweights, so the search never changes the pieces of the input.
+	 * @param position position to search from
+	 * @param bitboards whether to search on a BitboardPosition
+	 * @return an updatable copy of the position
+	 */
+	private UpdatablePosition searchPosition(Position position, boolean bitboards) {
+		UpdatablePosition copy = bitboards ? new BitboardPosition(position)
+		                                   : new EstimatableArrayPosition(position, estimator);
+		FlyweightPiece.shareAll(copy);
+		return copy;
+	}
+	
+	/**
+	 * Estimates a position, using its running estimate if it keeps one.
+	 * @param position position to estimate
+	 * @return estimate of the position
+	 */
+	private int estimate(Position position) {
+		if (position instanceof EstimatableArrayPosition)
+			return ((EstimatableArrayPosition)position).estimate();
+		return estimator.boardEstimate(position);
+	}
 }
@@ -4,10 +4,11 @@ import model.board.*;
 import model.pieces.*;
 import model.players.minimax.estimators.BoardEstimator;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.LinkedList;
+import java.util.List;
 
 /**
  * Implementation of nave Minimax.
@@ -15,9 +16,9 @@ import java.util.PriorityQueue;
  * @author Sebastian Paaske Trholm
  */
 public class NaiveMinimax implements Minimax {
-	private static SquareFactory sqFactory = new IntSquareFactory();
 	private BoardEstimator estimator;
 	private int depth;
+	private long nodes; // visited by the running search
 	
 	/**
 	 * Creates a new Minimax.
@@ -29,50 +30,35 @@ public class NaiveMinimax implements Minimax {
 		this.depth = depth;
 	}
 	
-	public PriorityQueue<Move> moveRanking(Position board, final PieceColor toMove) {
-		final ArrayPosition position = new ArrayPosition(board);
+	@Override
+	public SearchResult search(Position board, PieceColor toMove) {
+		PersistentPosition position = PersistentPosition.from(board);
+		nodes = 0;
 		
-		Comparator<Move> comparator = new Comparator<Move>() {
-			Map<Move, Integer> moveRanking = new HashMap<Move, Integer>();;
+		List<SearchResult.RankedMove> ranking = new ArrayList<SearchResult.RankedMove>();
+		for (long pieces = position.occupied(toMove); pieces != 0; pieces &= pieces - 1) {
+			int index = Long.numberOfTrailingZeros(pieces);
+			Piece p = position.get(index);
 			
-			@Override
-			public int compare(Move o1, Move o2) {
-				if (!moveRanking.containsKey(o1)) {
-					ArrayPosition posCopy = (ArrayPosition)(position.deepClone());
-					Piece p = posCopy.get(o1.from);
-					p.moveTo(posCopy, o1.to);
-					moveRanking.put(o1, minimax(posCopy, depth-1, toMove.other()));
-				}
-				if (!moveRanking.containsKey(o2)) {
-					ArrayPosition posCopy = (ArrayPosition)(position.deepClone());
-					Piece p = posCopy.get(o2.from);
-					p.moveTo(posCopy, o2.to);
-					moveRanking.put(o2, minimax(posCopy, depth-1, toMove.other()));
-				}
-				
-				int r1 = moveRanking.get(o1),
-				    r2 = moveRanking.get(o2);
-				
-				return r1 > r2 ?  1 :
-					   r1 < r2 ? -1 :
-						   		  0;
-			}		
-		};
-		
-		PriorityQueue<Move> moveRanking = new PriorityQueue<Move>(100, comparator);
-		
-		for (Square sq : sqFactory) {
-			Piece p = position.get(sq);
-			if ((p == null) || (p.color() != toMove))
-				continue;
-			
-			for (Square target : p.validSquares(position)) {
+			Square sq = IntSquareFactory.square(index);
+			for (Square target : p.validSquares(position, sq)) {
+				LinkedList<Move> line = new LinkedList<Move>();
+				int value = -minimax(position.play(sq, target), depth-1, toMove.other(), line);
 				Move m = new Move(sq, target);
-				moveRanking.add(m);
+				line.addFirst(m);
+				ranking.add(new SearchResult.RankedMove(m, value, true, line));
 			}
 		}
 		
-		return moveRanking;
+		Collections.sort(ranking, new Comparator<SearchResult.RankedMove>() {
+			@Override
+			public int compare(SearchResult.RankedMove o1, SearchResult.RankedMove o2) {
+				return o1.score() > o2.score() ? -1 :
+				       o1.score() < o2.score() ?  1 :
+				                                  0;
+			}
+		});
+		return new SearchResult(ranking, depth, nodes);
 	}
 	
 	/**
@@ -81,25 +67,32 @@ public class NaiveMinimax implements Minimax {
 	 * @param board board position to work with
 	 * @param depthLeft depth left to iterate
 	 * @param toMove whose turn it is
+	 * @param line filled with the best line of play found from the position
 	 * @return best possible value according to the algorithm
 	 */
-	private int minimax(Position board, int depthLeft, PieceColor toMove) {
+	private int minimax(Position board, int depthLeft, PieceColor toMove, LinkedList<Move> line) {
+		nodes++;
 		if (depthLeft <= 0)
 			return (toMove == PieceColor.BLACK ? -1 : 1) *
 					estimator.boardEstimate(board);
 		
-		ArrayPosition position = new ArrayPosition(board);
+		PersistentPosition position = PersistentPosition.from(board);
 		int bestValue = Integer.MIN_VALUE;
 		
-		for (Square sq : sqFactory) {
-			Piece p = position.get(sq);
-			if ((p == null) || (p.color() != toMove))
-				continue;
+		for (long pieces = position.occupied(toMove); pieces != 0; pieces &= pieces - 1) {
+			int index = Long.numberOfTrailingZeros(pieces);
+			Piece p = position.get(index);
 			
-			for (Square target : p.validSquares(position)) {
-				ArrayPosition posClone = (ArrayPosition)position.deepClone();
-				p.moveTo(posClone, target);
-				bestValue = Math.max(bestValue, -minimax(posClone, depthLeft-1, toMove.other()));
+			Square sq = IntSquareFactory.square(index);
+			for (Square target : p.validSquares(position, sq)) {
+				LinkedList<Move> below = new LinkedList<Move>();
+				int value = -minimax(position.play(sq, target), depthLeft-1, toMove.other(), below);
+				if (value > bestValue) {
+					bestValue = value;
+					below.addFirst(new Move(sq, target));
+					line.clear();
+					line.addAll(below);
+				}
 			}
 		}
 		
@@ -0,0 +1,77 @@
+package model.players.minimax;
+
+/**
+ * Limits on a search: how long it may take, how deep it may go and how many
+ * nodes it may visit. A search stops at whichever limit it reaches first.
+ * @author Sebastian Paaske Trholm
+ */
+public final class SearchLimits {
+	/**
+	 * Given for the time or node limit when there is none.
+	 */
+	public static final long NONE = 0;
+	
+	private final long millis, nodes;
+	private final int depth;
+	
+	/**
+	 * Creates new SearchLimits.
+	 * @param millis wall-clock time the search may take in milliseconds, NONE for no limit
+	 * @param depth greatest depth to search to, at most TranspositionTable.MAX_DEPTH
+	 * @param nodes number of nodes the search may visit, NONE for no limit
+	 * @require millis >= 0 && nodes >= 0
+	 * @require 1 <= depth && depth <= TranspositionTable.MAX_DEPTH
+	 */
+	public SearchLimits(long millis, int depth, long nodes) {
+		assert millis >= 0 && nodes >= 0;
+		assert 1 <= depth && depth <= TranspositionTable.MAX_DEPTH;
+		this.millis = millis;
+		this.depth = depth;
+		this.nodes = nodes;
+	}
+	
+	/**
+	 * Limits on the depth only.
+	 * @param depth depth to search to
+	 * @return limits searching to the given depth, however long it takes
+	 */
+	public static SearchLimits depth(int depth) {
+		return new SearchLimits(NONE, depth, NONE);
+	}
+	
+	/**
+	 * Limits on the time only.
+	 * @param millis time the search may take in milliseconds
+	 * @return limits searching as deep as the time allows
+	 */
+	public static SearchLimits time(long millis) {
+		return new SearchLimits(millis, TranspositionTable.MAX_DEPTH, NONE);
+	}
+	
+	/**
+	 * @return the time the search may take in milliseconds, NONE if unlimited
+	 */
+	public long millis() {
+		return millis;
+	}
+	
+	/**
+	 * @return the greatest depth to search to
+	 */
+	public int depth() {
+		return depth;
+	}
+	
+	/**
+	 * @return the number of nodes the search may visit, NONE if unlimited
+	 */
+	public long nodes() {
+		return nodes;
+	}
+	
+	@Override
+	public String toString() {
+		return "SearchLimits(" + (millis == NONE ? "-" : millis + "ms") + ", depth " + depth
+		     + ", " + (nodes == NONE ? "-" : nodes + " nodes") + ")";
+	}
+}
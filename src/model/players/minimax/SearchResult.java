@@ -0,0 +1,129 @@
+package model.players.minimax;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import model.board.Move;
+
+/**
+ * The result of searching a position: every move of the side to move, ranked best
+ * first, with its score and principal variation. Scores are from the point of view
+ * of the side to move, higher being better.
+ *
+ * A search may find out only that a move is no better than one ranked above it;
+ * such a move has an upper bound for its score rather than its exact score, and
+ * no principal variation beyond the move itself.
+ * A SearchResult is immutable.
+ * @author Sebastian Paaske Trholm
+ */
+public final class SearchResult {
+	/**
+	 * A move with what the search found out about it.
+	 */
+	public static final class RankedMove {
+		private final Move move;
+		private final int score;
+		private final boolean exact;
+		private final List<Move> principalVariation;
+		
+		/**
+		 * Creates a new RankedMove.
+		 * @param move the move
+		 * @param score its score, or an upper bound of it
+		 * @param exact whether the score is exact
+		 * @param principalVariation the line of best play the search expects, starting with the move
+		 * @require !principalVariation.isEmpty() && principalVariation.get(0).equals(move)
+		 */
+		public RankedMove(Move move, int score, boolean exact, List<Move> principalVariation) {
+			assert !principalVariation.isEmpty() && principalVariation.get(0).equals(move);
+			this.move = move;
+			this.score = score;
+			this.exact = exact;
+			this.principalVariation = Collections.unmodifiableList(new ArrayList<Move>(principalVariation));
+		}
+		
+		/**
+		 * @return the move
+		 */
+		public Move move() {
+			return move;
+		}
+		
+		/**
+		 * @return the score of the move if isExact(), otherwise an upper bound of it
+		 */
+		public int score() {
+			return score;
+		}
+		
+		/**
+		 * @return whether score() is the exact score of the move
+		 */
+		public boolean isExact() {
+			return exact;
+		}
+		
+		/**
+		 * @return the expected line of play, starting with the move; unmodifiable
+		 */
+		public List<Move> principalVariation() {
+			return principalVariation;
+		}
+		
+		@Override
+		public String toString() {
+			return move + " " + (exact ? "" : "<=") + score + " " + principalVariation;
+		}
+	}
+	
+	private final List<RankedMove> ranking;
+	private final int depth;
+	private final long nodes;
+	
+	/**
+	 * Creates a new SearchResult.
+	 * @param ranking the moves, best first
+	 * @param depth the depth the moves were searched to
+	 * @param nodes the number of positions the search visited
+	 * @require ranking is ordered by descending score
+	 */
+	public SearchResult(List<RankedMove> ranking, int depth, long nodes) {
+		this.ranking = Collections.unmodifiableList(new ArrayList<RankedMove>(ranking));
+		this.depth = depth;
+		this.nodes = nodes;
+	}
+	
+	/**
+	 * @return the best move, null if there are no moves
+	 */
+	public RankedMove best() {
+		return ranking.isEmpty() ? null : ranking.get(0);
+	}
+	
+	/**
+	 * @return every move, best first; unmodifiable
+	 */
+	public List<RankedMove> ranking() {
+		return ranking;
+	}
+	
+	/**
+	 * @return the depth the moves were searched to
+	 */
+	public int depth() {
+		return depth;
+	}
+	
+	/**
+	 * @return the number of positions the search visited
+	 */
+	public long nodes() {
+		return nodes;
+	}
+	
+	@Override
+	public String toString() {
+		return "depth " + depth + ", " + nodes + " nodes: " + ranking;
+	}
+}
@@ -0,0 +1,150 @@
+package model.players.minimax;
+
+import java.util.Arrays;
+
+import model.movegen.MoveCode;
+
+/**
+ * A fixed-size transposition table, remembering what the search found out about
+ * positions so that transpositions reached by another move order need not be
+ * searched again.
+ *
+ * Entries are kept in a long[] in buckets of two. The first entry of a bucket is
+ * depth-preferred: it is only replaced by results of searches at least as deep, or by
+ * newer results for the same position. The second entry always takes the newest result
+ * that did not go in the first one, or the entry the first one replaced. An entry is
+ * a pair of longs (key xor data, data), with the data packed as
+ * <ul>
+ * <li>the score (32 bits),</li>
+ * <li>the best move as a MoveCode, 0 if none is known (MoveCode.BITS bits),</li>
+ * <li>the depth searched (6 bits),</li>
+ * <li>the type of bound the score is (2 bits),</li>
+ * </ul>
+ * from the least significant bit up. The table is shared by search threads without
+ * locking: an entry torn by concurrent writes fails the xor verification and is
+ * treated as missing.
+ * @author Sebastian Paaske Trholm
+ */
+public final class TranspositionTable {
+	/**
+	 * Returned by probe when there is no entry for the position.
+	 */
+	public static final long MISS = 0;
+	
+	/** The score is the exact value of the position. */
+	public static final int EXACT = 1;
+	/** The score is a lower bound of the value, as the search was cut off. */
+	public static final int LOWER = 2;
+	/** The score is an upper bound of the value, as no move reached alpha. */
+	public static final int UPPER = 3;
+	
+	/**
+	 * The greatest depth an entry can hold.
+	 */
+	public static final int MAX_DEPTH = 63;
+	
+	private static final int MOVE_SHIFT = Integer.SIZE,
+	                         DEPTH_SHIFT = MOVE_SHIFT + MoveCode.BITS,
+	                         BOUND_SHIFT = DEPTH_SHIFT + 6;
+	private static final long MOVE_MASK = (1L << MoveCode.BITS) - 1;
+	private static final int BUCKET_LONGS = 4; // two entries of two longs
+	
+	private final long[] slots;
+	private final int bucketMask;
+	
+	/**
+	 * Creates a new, empty TranspositionTable.
+	 * @param megabytes size of the table in megabytes; rounded down to a power of two
+	 * @require megabytes >= 1
+	 */
+	public TranspositionTable(int megabytes) {
+		assert megabytes >= 1;
+		int buckets = Integer.highestOneBit((int)Math.min(Integer.MAX_VALUE / BUCKET_LONGS, 
+		                                                  (long)megabytes * (1 << 20) / (8 * BUCKET_LONGS)));
+		slots = new long[BUCKET_LONGS * buckets];
+		bucketMask = buckets - 1;
+	}
+	
+	/**
+	 * Looks up a position.
+	 * @param key the hash key of the position, as given by Position.hashKey
+	 * @return the data of the entry for the position, MISS if there is none
+	 */
+	public long probe(long key) {
+		int slot = BUCKET_LONGS * ((int)key & bucketMask);
+		long data = slots[slot + 1];
+		if ((slots[slot] ^ data) == key)
+			return data;
+		data = slots[slot + 3];
+		if ((slots[slot + 2] ^ data) == key)
+			return data;
+		return MISS;
+	}
+	
+	/**
+	 * Remembers the result of searching a position.
+	 * @param key the hash key of the position
+	 * @param depth the depth the position was searched to
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param score the score found
+	 * @param move the best move found as a MoveCode, 0 if none
+	 * @require 1 <= depth && depth <= MAX_DEPTH
+	 */
+	public void store(long key, int depth, int bound, int score, int move) {
+		assert 1 <= depth && depth <= MAX_DEPTH;
+		assert bound == EXACT || bound == LOWER || bound == UPPER;
+		long data = (score & 0xFFFFFFFFL) | (long)move << MOVE_SHIFT 
+		          | (long)depth << DEPTH_SHIFT | (long)bound << BOUND_SHIFT;
+		int slot = BUCKET_LONGS * ((int)key & bucketMask);
+		long stored = slots[slot + 1];
+		if ((slots[slot] ^ stored) != key && stored != MISS) {
+			if (depth < depth(stored))
+				slot += 2; // keep the deeper result; the second entry takes this one
+			else {         // replace it, moving it down to the second entry
+				slots[slot + 2] = slots[slot];
+				slots[slot + 3] = stored;
+			}
+		}
+		slots[slot] = key ^ data;
+		slots[slot + 1] = data;
+	}
+	
+	/**
+	 * Empties the table.
+	 */
+	public void clear() {
+		Arrays.fill(slots, 0);
+	}
+	
+	/**
+	 * @param entry data of an entry, as returned by probe
+	 * @return the score of the entry
+	 */
+	public static int score(long entry) {
+		return (int)entry;
+	}
+	
+	/**
+	 * @param entry data of an entry, as returned by probe
+	 * @return the best move of the entry as a MoveCode, 0 if none is known
+	 */
+	public static int move(long entry) {
+		return (int)((entry >>> MOVE_SHIFT) & MOVE_MASK);
+	}
+	
+	/**
+	 * @param entry data of an entry, as returned by probe
+	 * @return the depth the position of the entry was searched to, 0 for MISS
+	 */
+	public static int depth(long entry) {
+		return (int)(entry >>> DEPTH_SHIFT) & MAX_DEPTH;
+	}
+	
+	/**
+	 * @param entry data of an entry, as returned by probe
+	 * @return EXACT, LOWER or UPPER
+	 */
+	public static int bound(long entry) {
+		return (int)(entry >>> BOUND_SHIFT);
+	}
+}
@@ -3,25 +3,21 @@ package model.players.minimax.estimators;
 import model.board.*;
 import model.pieces.Piece;
 import model.pieces.PieceColor;
+import model.pieces.PieceType;
 
 /**
  * A simple BoardEstimator that evaluates solely based on which pieces are on the board.
  * @author Sebastian Paaske Trholm
  */
 public class PositionBoardEstimator implements BoardEstimator {
-	private SquareFactory sqFactory;
-	
-	public PositionBoardEstimator() {
-		sqFactory = new IntSquareFactory();
-	}
-	
 	@Override
 	public int boardEstimate(Position board) {
+		if (board instanceof BitboardPosition)
+			return materialCount((BitboardPosition)board);
+
 		int sum = 0;
-		for (Square sq : sqFactory) {
-			Piece p = board.get(sq);
-			sum += evaluatePiece(p);
-		}
+		for (int index = 0; index < Square.NUM_SQUARES; index++)
+			sum += evaluatePiece(board.get(index));
 		
 		return sum;
 	}
@@ -36,6 +32,20 @@ public class PositionBoardEstimator implements BoardEstimator {
 		return evaluatePiece(piece) - evaluatePiece(pos.get(file, rank));
 	}
 	
+	/**
+	 * Counts material on a BitboardPosition by population counts of its boards.
+	 * @param board board to evaluate
+	 * @return estimate, equal to what the square-by-square evaluation gives
+	 */
+	private static int materialCount(BitboardPosition board) {
+		int sum = 0;
+		for (PieceType type : PieceType.values())
+			sum += pieceValue(type) * (board.count(PieceColor.WHITE, type) 
+			                         - board.count(PieceColor.BLACK, type));
+		
+		return sum;
+	}
+	
 	/**
 	 * Evaluates the value of a given piece.
 	 * @param p piece
@@ -45,14 +55,7 @@ public class PositionBoardEstimator implements BoardEstimator {
 		int val = 0;
 		
 		if (p != null) {
-			switch (p.type()) { // http://en.wikipedia.org/wiki/Chess_piece_point_value#Hans_Berliner.27s_system
-				case PAWN:   val = 10; break;
-				case KNIGHT: val = 32; break;
-				case BISHOP: val = 33; break;
-				case ROOK:   val = 51; break;
-				case QUEEN:  val = 88; break;
-				case KING:   val = 10000; break;
-			}
+			val = pieceValue(p.type());
 			
 			int sign = p.color() == PieceColor.WHITE ? 1 : -1;
 			
@@ -60,4 +63,21 @@ public class PositionBoardEstimator implements BoardEstimator {
 		}
 		return val;
 	}
+	
+	/**
+	 * The value of a type of piece, regardless of color.
+	 * @param type piece type
+	 * @return value
+	 */
+	private static int pieceValue(PieceType type) {
+		switch (type) { // http://en.wikipedia.org/wiki/Chess_piece_point_value#Hans_Berliner.27s_system
+			case PAWN:   return 10;
+			case KNIGHT: return 32;
+			case BISHOP: return 33;
+			case ROOK:   return 51;
+			case QUEEN:  return 88;
+			case KING:   return 10000;
+		}
+		return 0;
+	}
 }
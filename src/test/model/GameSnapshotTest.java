@@ -0,0 +1,49 @@
+package test.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import model.*;
+import model.board.*;
+import model.pieces.*;
+import org.junit.*;
+
+/**
+ * Tests the snapshots taken by SimpleChessGame
+ * @author Sebastian Paaske Trholm
+ */
+public class GameSnapshotTest {
+	private SimpleChessGame game;
+
+	@Before
+	public void setUp() throws Exception {
+		game = new SimpleChessGame();
+	}
+
+	/**
+	 * After every move the snapshot must agree with the game, and snapshots taken
+	 * earlier must not change as the game goes on.
+	 * We play a game of random moves with a fixed seed, so captures and promotions occur.
+	 */
+	@Test
+	public final void testSnapshots() {
+		GameSnapshot first = game.snapshot();
+		PackedPosition start = PackedPosition.encode(first.position(), first.toMove());
+		assertEquals(0, first.numMoves());
+		assertEquals(null, first.lastMove());
+
+		RandomGame.play(game, 11, new RandomGame.Check() {
+			public void check(SimpleChessGame game, Random random) {
+				GameSnapshot snapshot = game.snapshot();
+				assertEquals(PackedPosition.encode(game.position(), game.toMove()),
+				             PackedPosition.encode(snapshot.position(), snapshot.toMove()));
+				assertEquals(game.numMoves(), snapshot.numMoves());
+				assertSame(game.lastMove(), snapshot.lastMove());
+				assertEquals(game.gameOver(), snapshot.gameOver());
+			}
+		});
+		assertEquals(game.winner(), game.snapshot().winner());
+		assertEquals(start, PackedPosition.encode(first.position(), first.toMove()));
+	}
+}
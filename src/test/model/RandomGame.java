@@ -0,0 +1,69 @@
+package test.model;
+
+import java.util.List;
+import java.util.Random;
+
+import model.SimpleChessGame;
+import model.board.*;
+import model.board.generators.*;
+
+/**
+ * Plays games of random moves with a fixed seed, for tests that check something in
+ * every position a game goes through. Such games reach captures, promotions and the
+ * capture of a king, which hand-made positions easily miss.
+ * @author Sebastian Paaske Trholm
+ */
+public final class RandomGame {
+	/**
+	 * What a test checks in each position of a game.
+	 */
+	public interface Check {
+		/**
+		 * Checks a position of the game: the starting one, and the one after each move.
+		 * @param game the game in the position to check; it must not be changed
+		 * @param random the source of the random moves, for any random choices of the check
+		 */
+		void check(SimpleChessGame game, Random random);
+	}
+	
+	private RandomGame() { }
+	
+	/**
+	 * @return a new game on a BitboardPosition holding a copy of the standard setup
+	 */
+	public static SimpleChessGame standard() {
+		return new SimpleChessGame(
+			new BitboardPosition(new StandardChessPositionFactory().position().deepClone()));
+	}
+	
+	/**
+	 * Plays random moves until the game is over, checking every position on the way.
+	 * @param game game to play, from its current position
+	 * @param seed seed of the random moves
+	 * @param check what to check in each position
+	 * @return the game, in its final position
+	 */
+	public static SimpleChessGame play(SimpleChessGame game, long seed, Check check) {
+		return play(game, seed, Integer.MAX_VALUE, check);
+	}
+	
+	/**
+	 * Plays random moves until the game is over or a number of moves have been made,
+	 * checking every position on the way.
+	 * @param game game to play, from its current position
+	 * @param seed seed of the random moves
+	 * @param plies greatest number of moves to make
+	 * @param check what to check in each position
+	 * @return the game, in its last position
+	 */
+	public static SimpleChessGame play(SimpleChessGame game, long seed, int plies, Check check) {
+		Random random = new Random(seed);
+		check.check(game, random);
+		for (int ply = 0; ply < plies && !game.gameOver(); ply++) {
+			List<Move> moves = game.allValidMoves();
+			game.execute(moves.get(random.nextInt(moves.size())));
+			check.check(game, random);
+		}
+		return game;
+	}
+}
@@ -0,0 +1,120 @@
+package test.model.board;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import model.SimpleChessGame;
+import model.board.*;
+import model.board.generators.*;
+import model.pieces.*;
+import model.players.minimax.estimators.*;
+import org.junit.*;
+import test.model.RandomGame;
+
+/**
+ * Tests the BitboardPosition
+ * @author Sebastian Paaske Trholm
+ */
+public class BitboardPositionTest {
+	private PositionFactory standard;
+	private BitboardPosition position;
+	private IntSquareFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		standard = new StandardChessPositionFactory();
+		position = new BitboardPosition(standard.position());
+		factory = new IntSquareFactory();
+	}
+
+	/**
+	 * The bitboards must agree with the pieces of the position they were built from.
+	 * We check every square of the standard setup against the occupancy words.
+	 */
+	@Test
+	public final void testOccupancy() {
+		for (Square sq : factory) {
+			Piece p = standard.position().get(sq);
+			long bit = BitboardPosition.bit(sq.file(), sq.rank());
+			assertEquals(p, position.get(sq));
+			assertEquals(p != null, (position.occupied() & bit) != 0);
+			for (PieceColor color : PieceColor.values())
+				for (PieceType type : PieceType.values())
+					assertEquals(p != null && p.color() == color && p.type() == type,
+					             (position.pieces(color, type) & bit) != 0);
+		}
+
+		assertEquals(32, Long.bitCount(position.occupied()));
+		assertEquals(16, Long.bitCount(position.occupied(PieceColor.WHITE)));
+		assertEquals(8, position.count(PieceColor.BLACK, PieceType.PAWN));
+		assertEquals(1, position.count(PieceColor.WHITE, PieceType.QUEEN));
+	}
+
+	/**
+	 * Replacing, removing and promoting pieces must keep the bitboards in sync,
+	 * including when a piece changed type after it was placed.
+	 */
+	@Test
+	public final void testSet() {
+		Square e2 = factory.create("e2"),
+		       e7 = factory.create("e7");
+		Piece pawn = position.get(e2);
+
+		position.set(e7, pawn); // capture
+		position.set(e2, null);
+		assertEquals(7, position.count(PieceColor.BLACK, PieceType.PAWN));
+		assertEquals(8, position.count(PieceColor.WHITE, PieceType.PAWN));
+		assertEquals(31, Long.bitCount(position.occupied()));
+		assertEquals(0, position.occupied() & BitboardPosition.bit(5, 2));
+
+		pawn.type(PieceType.QUEEN); // promotion, then re-placed
+		position.set(e7, pawn);
+		assertEquals(7, position.count(PieceColor.WHITE, PieceType.PAWN));
+		assertEquals(2, position.count(PieceColor.WHITE, PieceType.QUEEN));
+
+		position.set(9, 1, pawn); // off the board, ignored
+		assertEquals(31, Long.bitCount(position.occupied()));
+	}
+
+	/**
+	 * The material count taken from the bitboards must equal the one taken square by square.
+	 */
+	@Test
+	public final void testEstimate() {
+		BoardEstimator estimator = new PositionBoardEstimator();
+		position.set(factory.create("d8"), null);
+		position.set(factory.create("a2"), null);
+
+		assertEquals(estimator.boardEstimate(new ArrayPosition(position)),
+		             estimator.boardEstimate(position));
+		assertEquals(88 - 10, estimator.boardEstimate(position));
+	}
+
+	/**
+	 * Making moves and taking them all back must restore the pieces, the bitboards and the key.
+	 * We follow a game of random moves with a fixed seed, so captures and promotions occur.
+	 */
+	@Test
+	public final void testMakeUnmake() {
+		PackedPosition start = PackedPosition.encode(position, PieceColor.WHITE);
+		long key = position.hashKey(PieceColor.WHITE);
+
+		SimpleChessGame game = RandomGame.play(new SimpleChessGame(), 7, new RandomGame.Check() {
+			public void check(SimpleChessGame game, Random random) {
+				if (game.lastMove() != null)
+					position.makeMove(game.lastMove());
+				assertEquals(PackedPosition.encode(game.position(), game.toMove()),
+				             PackedPosition.encode(position, game.toMove()));
+				assertEquals(Zobrist.key(position, game.toMove()), position.hashKey(game.toMove()));
+			}
+		});
+
+		for (int moves = game.numMoves(); moves > 0; moves--)
+			position.unmakeMove();
+		assertEquals(start, PackedPosition.encode(position, PieceColor.WHITE));
+		assertEquals(key, position.hashKey(PieceColor.WHITE));
+		assertEquals(16, position.count(PieceColor.WHITE, PieceType.PAWN) 
+		               + position.count(PieceColor.BLACK, PieceType.PAWN));
+	}
+}
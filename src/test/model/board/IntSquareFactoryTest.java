@@ -73,5 +73,30 @@ public class IntSquareFactoryTest {
 		
 		assertTrue(correctOrder.size() == 0);
 	}
+	
+	/**
+	 * The factory hands out canonical squares, so every way of asking for a square
+	 * must give the very same object, and its precomputed data must be consistent.
+	 * Corner squares have 3 neighbours, other edge squares 5, and the rest 8.
+	 */
+	@Test
+	public final void testCanonicalSquares() {
+		for (int index = 0; index < Square.NUM_SQUARES; index++) {
+			IntSquare sq = IntSquareFactory.square(index);
+			assertEquals(index, sq.position());
+			assertEquals(index, IntSquareFactory.index(pairFactory.create(sq.file(), sq.rank())));
+			assertTrue(sq == intFactory.create(sq.file(), sq.rank()));
+			assertTrue(sq == ((IntSquareFactory)intFactory).create(sq.toString()));
+			
+			boolean fileEdge = sq.file() == 1 || sq.file() == Square.MAX_FILE,
+			        rankEdge = sq.rank() == 1 || sq.rank() == Square.MAX_RANK;
+			assertEquals(fileEdge && rankEdge ? 3 : fileEdge || rankEdge ? 5 : 8,
+			             sq.neighbours().length);
+		}
+		
+		IntSquare a1 = IntSquareFactory.square(0);
+		assertTrue(a1.offset(1, 2) == intFactory.create(2, 3));
+		assertEquals(null, a1.offset(-1, 0));
+	}
 
 }
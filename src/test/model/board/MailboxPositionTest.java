@@ -0,0 +1,103 @@
+package test.model.board;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import model.SimpleChessGame;
+import model.board.*;
+import model.pieces.*;
+import org.junit.*;
+import test.model.RandomGame;
+
+/**
+ * Tests the MailboxPosition
+ * @author Sebastian Paaske Trholm
+ */
+public class MailboxPositionTest {
+	private IntSquareFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new IntSquareFactory();
+	}
+
+	/**
+	 * Pawns and knights on the edge files and ranks step furthest into the sentinel border,
+	 * so their targets on a mailbox must equal those on an ArrayPosition.
+	 */
+	@Test
+	public final void testEdges() {
+		String[] squares = { "a1", "h1", "a8", "h8", "a2", "h7", "a7", "h2", "b1", "g8", "a4", "h5" };
+		for (String name : squares)
+			for (PieceColor color : PieceColor.values())
+				for (PieceType type : new PieceType[] { PieceType.PAWN, PieceType.KNIGHT }) {
+					List<Piece> pieces = new ArrayList<Piece>();
+					pieces.add(new GenericPiece(color, factory.create(name), type));
+					assertSameTargets(pieces);
+				}
+	}
+
+	/**
+	 * Every piece of random positions must have the same targets on a mailbox as on an
+	 * ArrayPosition. Half of the pieces are pawns and knights on the edge files and ranks.
+	 */
+	@Test
+	public final void testRandomPositions() {
+		Random random = new Random(11);
+		PieceType[] edgeTypes = { PieceType.PAWN, PieceType.KNIGHT };
+		for (int round = 0; round < 200; round++) {
+			boolean[] taken = new boolean[Square.NUM_SQUARES];
+			List<Piece> pieces = new ArrayList<Piece>();
+			for (int i = 0; i < 16; i++) {
+				boolean edge = i % 2 == 0;
+				int file = 1 + random.nextInt(Square.MAX_FILE),
+				    rank = 1 + random.nextInt(Square.MAX_RANK);
+				if (edge && random.nextBoolean())
+					file = random.nextBoolean() ? 1 : Square.MAX_FILE;
+				else if (edge)
+					rank = random.nextBoolean() ? 1 : Square.MAX_RANK;
+				int index = IntSquare.fileRankToPosition(file, rank);
+				if (taken[index])
+					continue;
+				taken[index] = true;
+				PieceType type = edge ? edgeTypes[random.nextInt(edgeTypes.length)]
+				                      : PieceType.values()[random.nextInt(PieceType.values().length)];
+				PieceColor color = PieceColor.values()[random.nextInt(PieceColor.values().length)];
+				pieces.add(new GenericPiece(color, factory.create(file, rank), type));
+			}
+			assertSameTargets(pieces);
+		}
+	}
+
+	/**
+	 * Every piece must have the same targets on a mailbox as on an ArrayPosition
+	 * throughout a game of random moves with a fixed seed.
+	 */
+	@Test
+	public final void testGame() {
+		RandomGame.play(new SimpleChessGame(), 13, new RandomGame.Check() {
+			public void check(SimpleChessGame game, Random random) {
+				MailboxPosition mailbox = new MailboxPosition(game.position());
+				for (Square sq : factory) {
+					Piece p = game.position().get(sq);
+					if (p != null)
+						assertEquals(p.validSquares(game.position(), sq), p.validSquares(mailbox, sq));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Asserts that every piece has the same targets on a MailboxPosition and an ArrayPosition.
+	 */
+	private void assertSameTargets(List<Piece> pieces) {
+		Position array = new ArrayPosition(pieces),
+		         mailbox = new MailboxPosition(pieces);
+		for (Piece p : pieces)
+			assertEquals(p + " on " + p.location(),
+			             p.validSquares(array, p.location()), p.validSquares(mailbox, p.location()));
+	}
+}
@@ -0,0 +1,87 @@
+package test.model.board;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import model.SimpleChessGame;
+import model.board.*;
+import model.board.generators.*;
+import model.pieces.*;
+import org.junit.*;
+import test.model.RandomGame;
+
+/**
+ * Tests the MobilityCache kept by positions
+ * @author Sebastian Paaske Trholm
+ */
+public class MobilityCacheTest {
+	
+	/**
+	 * The cached targets of every piece must equal its freshly computed valid squares
+	 * after every move of a game of random moves, including captures and promotions.
+	 */
+	@Test
+	public final void testGame() {
+		RandomGame.play(RandomGame.standard(), 7, new RandomGame.Check() {
+			public void check(SimpleChessGame game, Random random) {
+				assertAgrees(game.position(), ((UpdatablePosition)game.position()).mobility());
+			}
+		});
+	}
+	
+	/**
+	 * Making and taking back moves must keep the cache up to date, as in a search.
+	 */
+	@Test
+	public final void testMakeUnmake() {
+		Random random = new Random(11);
+		UpdatablePosition position = new ArrayPosition(new StandardChessPositionFactory().position().deepClone());
+		MobilityCache mobility = position.mobility();
+		PieceColor toMove = PieceColor.WHITE;
+		
+		for (int line = 0; line < 50; line++) {
+			int made = 0;
+			for (; made < 8; made++) {
+				long pieces = position.occupied(toMove);
+				int from = -1;
+				long targets = 0;
+				for (int tries = 0; tries < 16 && targets == 0; tries++) {
+					from = nth(pieces, random.nextInt(Long.bitCount(pieces)));
+					targets = mobility.targets(from);
+				}
+				if (targets == 0)
+					break;
+				position.makeMove(from, nth(targets, random.nextInt(Long.bitCount(targets))));
+				assertAgrees(position, mobility);
+				toMove = toMove.other();
+			}
+			for (; made > 1; made--) { // keep the first move, so the next line starts further on
+				position.unmakeMove();
+				toMove = toMove.other();
+				assertAgrees(position, mobility);
+			}
+		}
+	}
+	
+	private static int nth(long squares, int n) {
+		for (; n > 0; n--)
+			squares &= squares - 1;
+		return Long.numberOfTrailingZeros(squares);
+	}
+	
+	private static void assertAgrees(Position position, MobilityCache mobility) {
+		for (int index = 0; index < Square.NUM_SQUARES; index++) {
+			Piece p = position.get(index);
+			if (p == null) {
+				assertEquals(0, mobility.targets(index));
+				continue;
+			}
+			long expected = 0;
+			for (Square sq : p.validSquares(position, IntSquareFactory.square(index)))
+				expected |= 1L << IntSquareFactory.index(sq);
+			assertEquals(expected, mobility.targets(index));
+			assertEquals(Long.bitCount(expected), mobility.validSquares(index).size());
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package test.model.board;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import model.board.*;
+import model.board.generators.*;
+import model.pieces.*;
+import org.junit.*;
+
+/**
+ * Tests the PackedPosition
+ * @author Sebastian Paaske Trholm
+ */
+public class PackedPositionTest {
+	private Position standard;
+	private IntSquareFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		standard = new StandardChessPositionFactory().position();
+		factory = new IntSquareFactory();
+	}
+
+	/**
+	 * Decoding an encoded position must give back the same pieces on the same squares.
+	 */
+	@Test
+	public final void testRoundTrip() {
+		PackedPosition packed = PackedPosition.encode(standard, PieceColor.BLACK);
+		Position decoded = packed.decode();
+		for (Square sq : factory) {
+			Piece original = standard.get(sq),
+			      copy = decoded.get(sq);
+			if (original == null)
+				assertEquals(null, copy);
+			else
+				assertEquals(original, copy);
+		}
+		assertEquals(PieceColor.BLACK, packed.toMove());
+		assertEquals(PieceType.KING, packed.type(IntSquareFactory.index(factory.create("e8"))));
+		assertEquals(PieceColor.WHITE, packed.color(IntSquareFactory.index(factory.create("a1"))));
+	}
+
+	/**
+	 * Equality must hold exactly when the pieces and the side to move agree,
+	 * regardless of which kind of position was encoded.
+	 */
+	@Test
+	public final void testEquality() {
+		PackedPosition white = PackedPosition.encode(standard, PieceColor.WHITE);
+		PackedPosition bitboard = PackedPosition.encode(new BitboardPosition(standard), PieceColor.WHITE);
+		assertEquals(white, bitboard);
+		assertEquals(white.hashCode(), bitboard.hashCode());
+
+		assertFalse(white.equals(PackedPosition.encode(standard, PieceColor.BLACK)));
+
+		UpdatablePosition changed = new ArrayPosition(standard.deepClone());
+		changed.set(factory.create("e4"), changed.get(factory.create("e2")));
+		changed.set(factory.create("e2"), null);
+		assertFalse(white.equals(PackedPosition.encode(changed, PieceColor.WHITE)));
+	}
+
+	/**
+	 * Writing and reading a packed position must give an equal one, in BYTES bytes.
+	 */
+	@Test
+	public final void testSerialization() throws IOException {
+		PackedPosition packed = PackedPosition.encode(standard, PieceColor.WHITE);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		packed.write(new DataOutputStream(bytes));
+		assertEquals(PackedPosition.BYTES, bytes.size());
+
+		PackedPosition read = PackedPosition.read(
+			new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertEquals(packed, read);
+	}
+}
@@ -0,0 +1,109 @@
+package test.model.board;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+
+import model.SimpleChessGame;
+import model.board.*;
+import model.board.generators.*;
+import model.pieces.*;
+import org.junit.*;
+import test.model.RandomGame;
+
+/**
+ * Tests the PersistentPosition
+ * @author Sebastian Paaske Trholm
+ */
+public class PersistentPositionTest {
+	private IntSquareFactory factory;
+	private PersistentPosition start;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new IntSquareFactory();
+		start = PersistentPosition.from(new StandardChessPositionFactory().position());
+	}
+
+	/**
+	 * Deriving positions by with and play must leave the positions they came from unchanged.
+	 */
+	@Test
+	public final void testImmutability() {
+		PackedPosition before = PackedPosition.encode(start, PieceColor.WHITE);
+		long key = start.hashKey(PieceColor.WHITE),
+		     white = start.occupied(PieceColor.WHITE);
+
+		PersistentPosition e4 = start.play(factory.create("e2"), factory.create("e4"));
+		PersistentPosition empty = e4.with(factory.create("d8"), null);
+		assertEquals(before, PackedPosition.encode(start, PieceColor.WHITE));
+		assertEquals(key, start.hashKey(PieceColor.WHITE));
+		assertEquals(white, start.occupied(PieceColor.WHITE));
+		assertEquals(null, e4.get(factory.create("e2")));
+		assertEquals(PieceType.QUEEN, e4.get(factory.create("d8")).type());
+		assertEquals(null, empty.get(factory.create("d8")));
+		assertSame(e4, e4.with(factory.create("d8"), e4.get(factory.create("d8"))));
+	}
+
+	/**
+	 * Only the rank nodes a change touches may be copied; all other ranks are shared,
+	 * and a pawn reaching the last rank is promoted.
+	 */
+	@Test
+	public final void testSharing() throws Exception {
+		PersistentPosition e4 = start.play(factory.create("e2"), factory.create("e4"));
+		Piece[][] before = ranks(start),
+		          after = ranks(e4);
+		for (int rank = 1; rank <= Square.MAX_RANK; rank++)
+			if (rank == 2 || rank == 4)
+				assertNotSame(before[rank - 1], after[rank - 1]);
+			else
+				assertSame(before[rank - 1], after[rank - 1]);
+		assertSame(start.get(factory.create("d1")), e4.get(factory.create("d1")));
+
+		PersistentPosition promoted = PersistentPosition.empty()
+			.with(factory.create("a7"), FlyweightPiece.of(PieceColor.WHITE, PieceType.PAWN))
+			.with(factory.create("h1"), FlyweightPiece.of(PieceColor.BLACK, PieceType.KING))
+			.play(factory.create("a7"), factory.create("a8"));
+		assertEquals(PieceType.QUEEN, promoted.get(factory.create("a8")).type());
+		assertEquals(PieceColor.WHITE, promoted.get(factory.create("a8")).color());
+		assertEquals(null, promoted.get(factory.create("a7")));
+	}
+
+	/**
+	 * The rank nodes of a position, which are private to it.
+	 */
+	private static Piece[][] ranks(PersistentPosition position) throws Exception {
+		Field ranks = PersistentPosition.class.getDeclaredField("ranks");
+		ranks.setAccessible(true);
+		return (Piece[][])ranks.get(position);
+	}
+
+	/**
+	 * Occupancy and key must equal those of an ArrayPosition following the same game,
+	 * and each position of the game must keep its own until the end.
+	 */
+	@Test
+	public final void testGame() {
+		PersistentPosition first = start.play(factory.create("g1"), factory.create("f3"));
+		long firstKey = first.hashKey(PieceColor.BLACK);
+
+		RandomGame.play(new SimpleChessGame(), 17, new RandomGame.Check() {
+			private PersistentPosition persistent = start;
+			
+			public void check(SimpleChessGame game, Random random) {
+				if (game.lastMove() != null)
+					persistent = persistent.play(game.lastMove());
+				Position position = game.position();
+				for (PieceColor color : PieceColor.values())
+					assertEquals(position.occupied(color), persistent.occupied(color));
+				assertEquals(position.hashKey(game.toMove()), persistent.hashKey(game.toMove()));
+				assertEquals(PackedPosition.encode(position, game.toMove()),
+				             PackedPosition.encode(persistent, game.toMove()));
+			}
+		});
+		assertEquals(firstKey, first.hashKey(PieceColor.BLACK));
+		assertEquals(Zobrist.key(first, PieceColor.BLACK), first.hashKey(PieceColor.BLACK));
+	}
+}
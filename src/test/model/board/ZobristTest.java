@@ -0,0 +1,65 @@
+package test.model.board;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import model.SimpleChessGame;
+import model.board.*;
+import model.board.generators.*;
+import model.pieces.*;
+import org.junit.*;
+import test.model.RandomGame;
+
+/**
+ * Tests the Zobrist keys kept by positions
+ * @author Sebastian Paaske Trholm
+ */
+public class ZobristTest {
+	private IntSquareFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new IntSquareFactory();
+	}
+
+	/**
+	 * The incrementally kept key must equal the key computed from scratch after every move,
+	 * for both the updatable positions and the persistent position following the same game.
+	 * We play a game of random moves with a fixed seed, including captures and promotions.
+	 */
+	@Test
+	public final void testIncrementalKey() {
+		RandomGame.play(RandomGame.standard(), 42, new RandomGame.Check() {
+			private PersistentPosition persistent;
+			
+			public void check(SimpleChessGame game, Random random) {
+				Position position = game.position();
+				PieceColor toMove = game.toMove();
+				persistent = game.lastMove() == null ? PersistentPosition.from(position)
+				                                     : persistent.play(game.lastMove());
+				assertEquals(Zobrist.key(position, toMove), position.hashKey(toMove));
+				assertEquals(Zobrist.key(position, toMove), persistent.hashKey(toMove));
+				assertEquals(Zobrist.key(position, toMove),
+				             new ArrayPosition(position).hashKey(toMove));
+			}
+		});
+	}
+
+	/**
+	 * Transpositions must give equal keys, and the side to move must change the key.
+	 */
+	@Test
+	public final void testTransposition() {
+		PersistentPosition start = PersistentPosition.from(new StandardChessPositionFactory().position());
+		PersistentPosition roundTrip = start.play(factory.create("g1"), factory.create("f3"))
+		                                    .play(factory.create("g8"), factory.create("f6"))
+		                                    .play(factory.create("f3"), factory.create("g1"))
+		                                    .play(factory.create("f6"), factory.create("g8"));
+		assertEquals(start.hashKey(PieceColor.WHITE), roundTrip.hashKey(PieceColor.WHITE));
+		assertFalse(start.hashKey(PieceColor.WHITE) == start.hashKey(PieceColor.BLACK));
+
+		PersistentPosition e4 = start.play(factory.create("e2"), factory.create("e4"));
+		assertFalse(start.hashKey(PieceColor.BLACK) == e4.hashKey(PieceColor.BLACK));
+	}
+}
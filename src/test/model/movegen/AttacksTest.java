@@ -0,0 +1,82 @@
+package test.model.movegen;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import model.SimpleChessGame;
+import model.board.*;
+import model.movegen.*;
+import model.pieces.*;
+import org.junit.*;
+import test.model.RandomGame;
+
+/**
+ * Tests the attack queries
+ * @author Sebastian Paaske Trholm
+ */
+public class AttacksTest {
+
+	/**
+	 * Working backwards from a square must agree with the attack map built forwards,
+	 * and an enemy piece must be attacked exactly when some piece can move onto it.
+	 * The check flag of each move must agree with the enemy pieces' moves.
+	 * We check every square of every position of a game of random moves with a fixed seed,
+	 * on both an array and a bitboard position.
+	 */
+	@Test
+	public final void testAgreesWithMoves() {
+		RandomGame.play(new SimpleChessGame(), 13, new RandomGame.Check() {
+			public void check(SimpleChessGame game, Random random) {
+				if (game.lastMove() != null)
+					assertEquals(kingAttacked(game.position(), game.toMove()), game.lastMove().check());
+				for (Position position : new Position[]{ game.position(), new BitboardPosition(game.position()) })
+					assertAgrees(position);
+			}
+		});
+	}
+	
+	private static void assertAgrees(Position position) {
+		for (PieceColor color : PieceColor.values()) {
+			long map = Attacks.attackMap(position, color),
+			     captures = 0;
+			for (Move move : moves(position, color))
+				if (position.get(move.to) != null)
+					captures |= 1L << IntSquareFactory.index(move.to);
+			for (int square = 0; square < Square.NUM_SQUARES; square++) {
+				boolean attacked = Attacks.isAttacked(position, square, color);
+				assertEquals((map & (1L << square)) != 0, attacked);
+				assertEquals(attacked, Attacks.attackers(position, square, color) != 0);
+				if ((position.occupied(color.other()) & (1L << square)) != 0)
+					assertEquals((captures & (1L << square)) != 0, attacked);
+			}
+		}
+	}
+
+	/**
+	 * Whether some enemy piece can move onto the king of a side, found through the
+	 * pieces' validSquares rather than the attack queries.
+	 */
+	private static boolean kingAttacked(Position position, PieceColor color) {
+		for (Move move : moves(position, color.other())) {
+			Piece p = position.get(move.to);
+			if (p != null && p.color() == color && p.type() == PieceType.KING)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * All the moves of one side, found through the pieces' validSquares.
+	 */
+	private static List<Move> moves(Position position, PieceColor color) {
+		List<Move> moves = new ArrayList<Move>();
+		for (long pieces = position.occupied(color); pieces != 0; pieces &= pieces - 1) {
+			int index = Long.numberOfTrailingZeros(pieces);
+			Square from = IntSquareFactory.square(index);
+			for (Square to : position.get(index).validSquares(position, from))
+				moves.add(new Move(from, to));
+		}
+		return moves;
+	}
+}
@@ -0,0 +1,76 @@
+package test.model.movegen;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import model.SimpleChessGame;
+import model.board.*;
+import model.movegen.*;
+import model.pieces.*;
+import org.junit.*;
+import test.model.RandomGame;
+
+/**
+ * Tests the KingSafety filter against making every move
+ * @author Sebastian Paaske Trholm
+ */
+public class KingSafetyTest {
+	private MoveGenerator generator;
+	private KingSafety safety;
+
+	@Before
+	public void setUp() throws Exception {
+		generator = new MoveGenerator();
+		safety = new KingSafety();
+	}
+
+	/**
+	 * In every position of many games of random moves, the filter must keep exactly
+	 * the moves after which the mover's king can't be captured, plus the king captures.
+	 */
+	@Test
+	public final void testAgreesWithMaking() {
+		final int[] moves = new int[MoveGenerator.MAX_MOVES];
+		for (int game = 0; game < 20; game++)
+			RandomGame.play(new SimpleChessGame(), 17 + game, new RandomGame.Check() {
+				public void check(SimpleChessGame game, Random random) {
+					assertSafe(game.position(), game.toMove(), moves);
+					assertSafe(new BitboardPosition(game.position()), game.toMove(), moves);
+				}
+			});
+	}
+
+	/**
+	 * Several kings of one color are all protected.
+	 */
+	@Test
+	public final void testSeveralKings() {
+		IntSquareFactory factory = new IntSquareFactory();
+		UpdatablePosition position = new ArrayPosition();
+		position.set(factory.create("a1"), FlyweightPiece.of(PieceColor.WHITE, PieceType.KING));
+		position.set(factory.create("h1"), FlyweightPiece.of(PieceColor.WHITE, PieceType.KING));
+		position.set(factory.create("b8"), FlyweightPiece.of(PieceColor.BLACK, PieceType.ROOK));
+		position.set(factory.create("g8"), FlyweightPiece.of(PieceColor.BLACK, PieceType.ROOK));
+		assertSafe(position, PieceColor.WHITE, new int[MoveGenerator.MAX_MOVES]);
+		assertEquals(2, safety.safeMoves(position, PieceColor.WHITE).size()); // Ka2 and Kh2
+	}
+
+	private void assertSafe(Position position, PieceColor toMove, int[] moves) {
+		int count = generator.generate(position, toMove, moves);
+		Set<Integer> expected = new HashSet<Integer>();
+		PersistentPosition persistent = PersistentPosition.from(position);
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			if (PackedPosition.codeType(MoveCode.captured(move)) == PieceType.KING
+			||  !Attacks.inCheck(persistent.play(MoveCode.toMove(move)), toMove))
+				expected.add(move);
+		}
+
+		int kept = safety.filter(position, toMove, moves, count);
+		Set<Integer> safe = new HashSet<Integer>();
+		for (int i = 0; i < kept; i++)
+			safe.add(moves[i]);
+		assertEquals(expected, safe);
+	}
+}
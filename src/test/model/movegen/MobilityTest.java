@@ -0,0 +1,60 @@
+package test.model.movegen;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import model.SimpleChessGame;
+import model.board.*;
+import model.movegen.*;
+import model.pieces.*;
+import org.junit.*;
+import test.model.RandomGame;
+
+/**
+ * Tests the counts of Mobility
+ * @author Sebastian Paaske Trholm
+ */
+public class MobilityTest {
+
+	/**
+	 * The counts must equal the sizes of the sets they stand in for, after every
+	 * move of a game of random moves.
+	 */
+	@Test
+	public final void testCounts() {
+		SimpleChessGame start = RandomGame.standard();
+		assertEquals(20, Mobility.count(start.position(), PieceColor.WHITE));
+		assertEquals(22, Mobility.attacks(start.position(), PieceColor.WHITE));
+		
+		RandomGame.play(start, 23, new RandomGame.Check() {
+			public void check(SimpleChessGame game, Random random) {
+				assertCounts(game.position());
+			}
+		});
+	}
+	
+	private static void assertCounts(Position position) {
+		for (PieceColor color : PieceColor.values()) {
+			long occupied = position.occupied(PieceColor.WHITE) | position.occupied(PieceColor.BLACK);
+			int moves = 0;
+			int[] attackers = new int[Square.NUM_SQUARES];
+			for (int index = 0; index < Square.NUM_SQUARES; index++) {
+				Piece p = position.get(index);
+				if (p == null || p.color() != color)
+					continue;
+				int valid = p.validSquares(position, IntSquareFactory.square(index)).size();
+				assertEquals(valid, Mobility.count(position, index));
+				moves += valid;
+				
+				long attacked = p.type().pattern.attacks(color, index, occupied);
+				assertEquals(Long.bitCount(attacked), Mobility.attacks(position, index));
+				for (; attacked != 0; attacked &= attacked - 1)
+					attackers[Long.numberOfTrailingZeros(attacked)]++;
+			}
+			assertEquals(moves, Mobility.count(position, color));
+			for (int square = 0; square < Square.NUM_SQUARES; square++)
+				assertEquals(attackers[square], Mobility.attackers(position, square, color));
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package test.model.movegen;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import model.SimpleChessGame;
+import model.board.*;
+import model.movegen.*;
+import model.pieces.*;
+import org.junit.*;
+import test.model.RandomGame;
+
+/**
+ * Tests the MoveGenerator and MoveCode
+ * @author Sebastian Paaske Trholm
+ */
+public class MoveGeneratorTest {
+	private MoveGenerator generator;
+	private int[] moves;
+
+	@Before
+	public void setUp() throws Exception {
+		generator = new MoveGenerator();
+		moves = new int[MoveGenerator.MAX_MOVES];
+	}
+
+	/**
+	 * The generated moves must be exactly the valid moves of the game, with the right
+	 * pieces encoded, at every point of a game of random moves with a fixed seed.
+	 */
+	@Test
+	public final void testAgreesWithGame() {
+		RandomGame.play(new SimpleChessGame(), 3, new RandomGame.Check() {
+			public void check(SimpleChessGame game, Random random) {
+				Position position = game.position();
+				Set<Integer> expected = new HashSet<Integer>();
+				for (Move move : game.allValidMoves())
+					expected.add(MoveCode.encode(move, position));
+
+				int count = generator.generate(position, game.toMove(), moves);
+				Set<Integer> generated = new HashSet<Integer>();
+				for (int i = 0; i < count; i++) {
+					int move = moves[i];
+					generated.add(move);
+					assertEquals(PackedPosition.code(position.get(MoveCode.from(move))), MoveCode.mover(move));
+					assertEquals(PackedPosition.code(position.get(MoveCode.to(move))), MoveCode.captured(move));
+				}
+				assertEquals(count, generated.size());
+				assertEquals(expected, generated);
+			}
+		});
+	}
+
+	/**
+	 * Encoding must keep every field apart, and promotions must be recognised.
+	 */
+	@Test
+	public final void testEncoding() {
+		int queen = PackedPosition.code(PieceColor.WHITE, PieceType.QUEEN),
+		    pawn = PackedPosition.code(PieceColor.WHITE, PieceType.PAWN),
+		    rook = PackedPosition.code(PieceColor.BLACK, PieceType.ROOK);
+		int move = MoveCode.encode(52, 61, pawn, rook, queen);
+		assertEquals(52, MoveCode.from(move));
+		assertEquals(61, MoveCode.to(move));
+		assertEquals(pawn, MoveCode.mover(move));
+		assertEquals(rook, MoveCode.captured(move));
+		assertEquals(queen, MoveCode.promotion(move));
+		assertTrue(MoveCode.isCapture(move));
+		assertEquals("WPe7xf8=Q", MoveCode.toString(move));
+
+		assertEquals(queen, MoveCode.promotion(PieceColor.WHITE, PieceType.PAWN, 61));
+		assertEquals(0, MoveCode.promotion(PieceColor.BLACK, PieceType.PAWN, 61));
+		assertEquals(0, MoveCode.promotion(PieceColor.WHITE, PieceType.ROOK, 61));
+	}
+
+	/**
+	 * The staged iterator must hand out the hash move first, then the captures, then
+	 * the quiet moves, each move exactly once, and ignore hash moves that aren't valid.
+	 */
+	@Test
+	public final void testStagedIterator() {
+		final StagedMoveIterator iterator = new StagedMoveIterator(generator);
+		final int foreign = MoveCode.encode(0, 63, PackedPosition.code(PieceColor.WHITE, PieceType.QUEEN), 0, 0);
+
+		RandomGame.play(new SimpleChessGame(), 9, new RandomGame.Check() {
+			public void check(SimpleChessGame game, Random random) {
+				Position position = game.position();
+				int count = generator.generate(position, game.toMove(), moves);
+				Set<Integer> expected = new HashSet<Integer>();
+				for (int i = 0; i < count; i++)
+					expected.add(moves[i]);
+				int hashMove = moves[random.nextInt(count)];
+
+				iterator.reset(position, game.toMove(), hashMove);
+				assertEquals(hashMove, iterator.next());
+				Set<Integer> handedOut = new HashSet<Integer>();
+				handedOut.add(hashMove);
+				boolean quiet = false;
+				for (int move = iterator.next(); move != StagedMoveIterator.NONE; move = iterator.next()) {
+					assertTrue(handedOut.add(move));
+					if (move == hashMove || !MoveCode.isCapture(move))
+						quiet = true;
+					else
+						assertFalse(quiet); // no captures after the quiet moves have started
+				}
+				assertEquals(expected, handedOut);
+
+				iterator.reset(position, game.toMove(), foreign);
+				int handed = 0;
+				for (int move = iterator.next(); move != StagedMoveIterator.NONE; move = iterator.next())
+					handed++;
+				assertEquals(count, handed);
+			}
+		});
+	}
+
+	/**
+	 * With a MoveOrdering, every move must still be handed out exactly once, captures
+	 * by descending MVV-LVA score, then the killers, then the quiet moves by descending
+	 * history score.
+	 */
+	@Test
+	public final void testOrderedIterator() {
+		final MoveOrdering ordering = new MoveOrdering(1);
+		final StagedMoveIterator iterator = new StagedMoveIterator(generator, ordering);
+
+		RandomGame.play(new SimpleChessGame(), 13, new RandomGame.Check() {
+			public void check(SimpleChessGame game, Random random) {
+				Position position = game.position();
+				int count = generator.generate(position, game.toMove(), moves);
+				Set<Integer> expected = new HashSet<Integer>();
+				for (int i = 0; i < count; i++)
+					expected.add(moves[i]);
+				for (int i = 0; i < 3; i++) // teach it some cutoffs, valid here or not
+					ordering.cutoff(moves[random.nextInt(count)], 0, 1 + random.nextInt(4));
+				Set<Integer> killers = new HashSet<Integer>();
+				for (int slot = 0; slot < 2; slot++)
+					if (expected.contains(ordering.killer(0, slot)))
+						killers.add(ordering.killer(0, slot));
+
+				iterator.reset(position, game.toMove(), StagedMoveIterator.NONE, 0);
+				Set<Integer> handedOut = new HashSet<Integer>();
+				int lastCapture = Integer.MAX_VALUE, lastHistory = Integer.MAX_VALUE, killersLeft = killers.size();
+				for (int move = iterator.next(); move != StagedMoveIterator.NONE; move = iterator.next()) {
+					assertTrue(handedOut.add(move));
+					if (MoveCode.isCapture(move)) {
+						assertEquals(killers.size(), killersLeft); // captures come first
+						assertTrue(MoveOrdering.mvvLva(move) <= lastCapture);
+						lastCapture = MoveOrdering.mvvLva(move);
+					} else if (killers.contains(move)) {
+						assertEquals(Integer.MAX_VALUE, lastHistory);
+						killersLeft--;
+					} else {
+						assertEquals(0, killersLeft);
+						assertTrue(ordering.history(move) <= lastHistory);
+						lastHistory = ordering.history(move);
+					}
+				}
+				assertEquals(expected, handedOut);
+			}
+		});
+	}
+}
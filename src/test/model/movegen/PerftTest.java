@@ -0,0 +1,50 @@
+package test.model.movegen;
+
+import static org.junit.Assert.*;
+
+import model.board.*;
+import model.board.generators.*;
+import model.movegen.*;
+import model.pieces.*;
+import org.junit.*;
+
+/**
+ * Tests Perft against known counts for the simplified rules
+ * @author Sebastian Paaske Trholm
+ */
+public class PerftTest {
+	private Position standard;
+
+	@Before
+	public void setUp() throws Exception {
+		standard = new StandardChessPositionFactory().position();
+	}
+
+	/**
+	 * The counts from the standard setup. Up to depth 3 they equal those of chess;
+	 * from depth 4 on kings may be left in check, which chess forbids.
+	 */
+	@Test
+	public final void testStandardCounts() {
+		Perft perft = new Perft();
+		long[] expected = { 1, 20, 400, 8902, 197742 };
+		for (int depth = 0; depth < expected.length; depth++)
+			assertEquals(expected[depth], perft.count(standard, PieceColor.WHITE, depth));
+	}
+
+	/**
+	 * Threads, the hash and divide must not change the counts.
+	 */
+	@Test
+	public final void testModes() {
+		long expected = new Perft().count(standard, PieceColor.WHITE, 4);
+		assertEquals(expected, new Perft(3, 0).count(standard, PieceColor.WHITE, 4));
+		assertEquals(expected, new Perft(1, 1).count(standard, PieceColor.WHITE, 4));
+		assertEquals(expected, new Perft(3, 1).count(standard, PieceColor.WHITE, 4));
+
+		long sum = 0;
+		for (Perft.Division division : new Perft(1, 1).divide(standard, PieceColor.WHITE, 4))
+			sum += division.nodes;
+		assertEquals(expected, sum);
+	}
+}
@@ -0,0 +1,99 @@
+package test.model.pieces;
+
+import static org.junit.Assert.*;
+
+import model.SimpleChessGame;
+import model.board.*;
+import model.board.generators.*;
+import model.pieces.*;
+import org.junit.*;
+
+/**
+ * Tests the FlyweightPiece
+ * @author Sebastian Paaske Trholm
+ */
+public class FlyweightPieceTest {
+	private Position standard;
+	private IntSquareFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		standard = new StandardChessPositionFactory().position().deepClone();
+		factory = new IntSquareFactory();
+	}
+
+	/**
+	 * There must be exactly one flyweight per color and type.
+	 */
+	@Test
+	public final void testShared() {
+		Piece whiteQueen = FlyweightPiece.of(PieceColor.WHITE, PieceType.QUEEN);
+		assertSame(whiteQueen, FlyweightPiece.of(standard.get(factory.create("d1"))));
+		assertSame(whiteQueen, whiteQueen.clone());
+		assertNotSame(whiteQueen, FlyweightPiece.of(PieceColor.BLACK, PieceType.QUEEN));
+		assertEquals(null, FlyweightPiece.of((Piece)null));
+	}
+
+	/**
+	 * Flyweights must move exactly like the pieces they replace.
+	 */
+	@Test
+	public final void testValidSquares() {
+		UpdatablePosition shared = new ArrayPosition(standard);
+		FlyweightPiece.shareAll(shared);
+		for (Square sq : factory) {
+			Piece original = standard.get(sq),
+			      flyweight = shared.get(sq);
+			if (original == null) {
+				assertEquals(null, flyweight);
+				continue;
+			}
+			assertTrue(flyweight instanceof FlyweightPiece);
+			assertEquals(original.validSquares(standard), flyweight.validSquares(shared, sq));
+			for (Square target : original.validSquares(standard))
+				assertTrue(flyweight.canMoveTo(shared, sq, target));
+		}
+		assertEquals(standard.hashKey(PieceColor.WHITE), shared.hashKey(PieceColor.WHITE));
+	}
+
+	/**
+	 * Making a promoting move must swap the flyweight, and taking it back must swap it back.
+	 */
+	@Test
+	public final void testPromotion() {
+		UpdatablePosition position = new ArrayPosition();
+		Square a7 = factory.create("a7"),
+		       a8 = factory.create("a8");
+		Piece pawn = FlyweightPiece.of(PieceColor.WHITE, PieceType.PAWN);
+		position.set(a7, pawn);
+
+		position.makeMove(new Move(a7, a8));
+		assertSame(FlyweightPiece.of(PieceColor.WHITE, PieceType.QUEEN), position.get(a8));
+		assertEquals(null, position.get(a7));
+
+		position.unmakeMove();
+		assertSame(pawn, position.get(a7));
+		assertEquals(null, position.get(a8));
+	}
+
+	/**
+	 * Flyweights have no location to set, so they must not be played on by a game.
+	 */
+	@Test
+	public final void testNoLocation() {
+		Piece king = FlyweightPiece.of(PieceColor.WHITE, PieceType.KING);
+		try {
+			king.location(factory.create("e1"));
+			fail("A flyweight took a location");
+		} catch (UnsupportedOperationException e) {
+		}
+
+		UpdatablePosition shared = new ArrayPosition(standard);
+		FlyweightPiece.shareAll(shared);
+		try {
+			new SimpleChessGame(shared);
+			fail("A game was played on flyweights");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
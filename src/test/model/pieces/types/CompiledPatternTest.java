@@ -0,0 +1,120 @@
+package test.model.pieces.types;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import model.board.*;
+import model.pieces.*;
+import model.pieces.types.*;
+import org.junit.*;
+
+/**
+ * Tests patterns compiled from PatternDescriptions
+ * @author Sebastian Paaske Trholm
+ */
+public class CompiledPatternTest {
+	private Random random;
+	
+	@Before
+	public void setUp() throws Exception {
+		random = new Random(19);
+	}
+
+	/**
+	 * Compiled descriptions of the standard pieces must move exactly like the standard patterns.
+	 */
+	@Test
+	public final void testStandardPieces() {
+		assertSameMoves(new RookPattern(), new PatternDescription().rays(PatternDescription.ORTHOGONAL));
+		assertSameMoves(new BishopPattern(), new PatternDescription().rays(PatternDescription.DIAGONAL));
+		assertSameMoves(new QueenPattern(), new PatternDescription().rays(PatternDescription.ORTHOGONAL)
+		                                                            .rays(PatternDescription.DIAGONAL));
+		assertSameMoves(new KnightPattern(), new PatternDescription().leaps(PatternDescription.KNIGHT));
+		assertSameMoves(new SimplifiedKingPattern(), new PatternDescription().leaps(PatternDescription.ORTHOGONAL)
+		                                                                     .leaps(PatternDescription.DIAGONAL));
+	}
+	
+	/**
+	 * A pawn described by a move-only ray and capture-only leaps must move like a pawn
+	 * off its starting row, for both colors.
+	 */
+	@Test
+	public final void testModes() {
+		MovementPattern pawn = new PatternDescription()
+			.ray(0, 1, 1, PatternDescription.Mode.MOVE_ONLY)
+			.leap(-1, 1, PatternDescription.Mode.CAPTURE_ONLY)
+			.leap(1, 1, PatternDescription.Mode.CAPTURE_ONLY).compile();
+		MovementPattern standard = new PawnPattern();
+		for (int trial = 0; trial < 100; trial++) {
+			Position position = randomPosition();
+			for (int from = 2 * Square.MAX_FILE; from < Square.NUM_SQUARES - 2 * Square.MAX_FILE; from++) {
+				Piece p = position.get(from);
+				if (p == null)
+					continue;
+				long own = position.occupied(p.color()); // the standard pawn leaves out its own pieces
+				assertEquals(targets(standard, p, from, position) & ~own, targets(pawn, p, from, position) & ~own);
+				long occupied = position.occupied(PieceColor.WHITE) | position.occupied(PieceColor.BLACK);
+				assertEquals(standard.attacks(p.color(), from, occupied), pawn.attacks(p.color(), from, occupied));
+				assertEquals(standard.attackedFrom(p.color(), from, occupied), 
+				             pawn.attackedFrom(p.color(), from, occupied));
+			}
+		}
+	}
+	
+	/**
+	 * Rays limited in length, and rays with steps longer than one square, must stop where described.
+	 */
+	@Test
+	public final void testRayLengths() {
+		MovementPattern twoSteps = new PatternDescription().ray(1, 0, 2, PatternDescription.Mode.MOVE_OR_CAPTURE).compile(),
+		                nightrider = new PatternDescription().rays(PatternDescription.KNIGHT).compile();
+		int a1 = 0, b3 = 2 * Square.MAX_FILE + 1, c5 = 4 * Square.MAX_FILE + 2, d7 = 6 * Square.MAX_FILE + 3;
+		assertEquals(0x6L, twoSteps.attacks(PieceColor.WHITE, a1, 0));
+		assertEquals(0x2L, twoSteps.attacks(PieceColor.WHITE, a1, 0x2L));
+		assertEquals(0x3L, twoSteps.attackedFrom(PieceColor.WHITE, 2, 0));
+		
+		long ray = 1L << b3 | 1L << c5 | 1L << d7;
+		assertEquals(ray, nightrider.attacks(PieceColor.WHITE, a1, 0) & ray);
+		assertEquals(1L << b3 | 1L << c5, nightrider.attacks(PieceColor.BLACK, a1, 1L << c5) & ray);
+		assertTrue((nightrider.attackedFrom(PieceColor.WHITE, d7, 0) & 1L << a1) != 0);
+		assertEquals(0, nightrider.attackedFrom(PieceColor.WHITE, d7, 1L << b3) & 1L << a1);
+	}
+	
+	private void assertSameMoves(MovementPattern expected, PatternDescription description) {
+		MovementPattern compiled = description.compile();
+		for (int trial = 0; trial < 50; trial++) {
+			Position position = randomPosition();
+			long occupied = position.occupied(PieceColor.WHITE) | position.occupied(PieceColor.BLACK);
+			for (int from = 0; from < Square.NUM_SQUARES; from++) {
+				for (PieceColor color : PieceColor.values()) {
+					assertEquals(expected.attacks(color, from, occupied), compiled.attacks(color, from, occupied));
+					assertEquals(expected.attackedFrom(color, from, occupied), 
+					             compiled.attackedFrom(color, from, occupied));
+					assertEquals(expected.dependencies(color, from, occupied), 
+					             compiled.dependencies(color, from, occupied));
+				}
+				Piece p = position.get(from);
+				if (p != null)
+					assertEquals(targets(expected, p, from, position), targets(compiled, p, from, position));
+			}
+		}
+	}
+	
+	private static long targets(MovementPattern pattern, Piece piece, int from, Position position) {
+		int[] targets = new int[Square.NUM_SQUARES];
+		long reached = 0;
+		for (int i = pattern.squareTargets(piece, from, position, targets, 0) - 1; i >= 0; i--)
+			reached |= 1L << targets[i];
+		return reached;
+	}
+	
+	private Position randomPosition() {
+		UpdatablePosition position = new ArrayPosition();
+		for (int index = 0; index < Square.NUM_SQUARES; index++)
+			if (random.nextInt(4) == 0)
+				position.set(index, new GenericPiece(random.nextBoolean() ? PieceColor.WHITE : PieceColor.BLACK,
+				                                     IntSquareFactory.square(index), PieceType.PAWN));
+		return position;
+	}
+}
@@ -0,0 +1,49 @@
+package test.model.pieces.types;
+
+import static org.junit.Assert.*;
+
+import model.board.*;
+import model.pieces.*;
+import model.pieces.types.*;
+import org.junit.*;
+
+/**
+ * Tests the target tables of the JumpingPatterns
+ * @author Sebastian Paaske Trholm
+ */
+public class JumpingPatternTest {
+	private IntSquareFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new IntSquareFactory();
+	}
+
+	/**
+	 * The tables must only hold squares on the board, and the set and the
+	 * index form of each table must agree.
+	 */
+	@Test
+	public final void testTables() {
+		JumpingPattern knight = (JumpingPattern)PieceType.KNIGHT.pattern,
+		               king = (JumpingPattern)PieceType.KING.pattern;
+		int a1 = IntSquareFactory.index(factory.create("a1")),
+		    e1 = IntSquareFactory.index(factory.create("e1")),
+		    d4 = IntSquareFactory.index(factory.create("d4"));
+
+		assertEquals(2, Long.bitCount(knight.attacks(a1)));
+		assertEquals(8, Long.bitCount(knight.attacks(d4)));
+		assertEquals(5, Long.bitCount(king.attacks(e1)));
+		assertTrue((knight.attacks(a1) & (1L << IntSquareFactory.index(factory.create("b3")))) != 0);
+
+		for (JumpingPattern pattern : new JumpingPattern[]{knight, king})
+			for (int from = 0; from < Square.NUM_SQUARES; from++) {
+				long set = 0;
+				for (int to : pattern.targets(from))
+					set |= 1L << to;
+				assertEquals(pattern.attacks(from), set);
+				assertEquals(pattern.targets(from).length, 
+				             pattern.legalMoves(null, IntSquareFactory.square(from), null).size());
+			}
+	}
+}
@@ -0,0 +1,53 @@
+package test.model.pieces.types;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import model.board.*;
+import model.pieces.*;
+import model.pieces.types.*;
+import org.junit.*;
+
+/**
+ * Tests the magic bitboard lookups of the LinePatterns
+ * @author Sebastian Paaske Trholm
+ */
+public class LinePatternTest {
+
+	/**
+	 * The squares looked up must be those found by walking the rays, for random
+	 * occupancies of every square.
+	 */
+	@Test
+	public final void testAttacks() {
+		Random random = new Random(5);
+		LinePattern[] patterns = { (LinePattern)PieceType.ROOK.pattern, (LinePattern)PieceType.BISHOP.pattern };
+		int[][][] directions = { { {0, 1}, {1, 0}, {0, -1}, {-1, 0} },
+		                         { {1, 1}, {-1, 1}, {1, -1}, {-1, -1} } };
+		for (int trial = 0; trial < 200; trial++) {
+			long occupied = random.nextLong() & random.nextLong();
+			for (int p = 0; p < patterns.length; p++)
+				for (int from = 0; from < Square.NUM_SQUARES; from++)
+					assertEquals(walk(from, directions[p], occupied), patterns[p].attacks(from, occupied));
+		}
+	}
+
+	/**
+	 * The squares reached from a square along some rays, found one step at a time.
+	 */
+	private static long walk(int from, int[][] directions, long occupied) {
+		long reached = 0;
+		for (int[] d : directions) {
+			int f = from % Square.MAX_FILE + d[0],
+			    r = from / Square.MAX_FILE + d[1];
+			for (; 0 <= f && f < Square.MAX_FILE && 0 <= r && r < Square.MAX_RANK; f += d[0], r += d[1]) {
+				long bit = 1L << (r * Square.MAX_FILE + f);
+				reached |= bit;
+				if ((occupied & bit) != 0)
+					break;
+			}
+		}
+		return reached;
+	}
+}
@@ -0,0 +1,145 @@
+package test.model.players.minimax;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import model.SimpleChessGame;
+import model.board.*;
+import model.pieces.*;
+import model.players.minimax.*;
+import model.players.minimax.estimators.PositionBoardEstimator;
+import org.junit.*;
+
+import test.model.RandomGame;
+
+/**
+ * Tests the iterative deepening search of MinimaxWithAlphaBeta
+ * @author Sebastian Paaske Trholm
+ */
+public class MinimaxWithAlphaBetaTest {
+	private IntSquareFactory factory;
+	private MinimaxWithAlphaBeta minimax;
+
+	@Before
+	public void setUp() throws Exception {
+		factory = new IntSquareFactory();
+		minimax = new MinimaxWithAlphaBeta(new PositionBoardEstimator(), 1, new TranspositionTable(1));
+	}
+
+	/**
+	 * A free queen must be taken, at any depth.
+	 */
+	@Test
+	public final void testCapture() {
+		UpdatablePosition position = new ArrayPosition();
+		position.set(factory.create("a1"), FlyweightPiece.of(PieceColor.WHITE, PieceType.KING));
+		position.set(factory.create("d1"), FlyweightPiece.of(PieceColor.WHITE, PieceType.ROOK));
+		position.set(factory.create("d7"), FlyweightPiece.of(PieceColor.BLACK, PieceType.QUEEN));
+		position.set(factory.create("h8"), FlyweightPiece.of(PieceColor.BLACK, PieceType.KING));
+		Move capture = new Move(factory.create("d1"), factory.create("d7"));
+		for (int depth = 1; depth <= 4; depth++) {
+			SearchResult result = minimax.search(position, PieceColor.WHITE, SearchLimits.depth(depth));
+			assertEquals(capture, result.best().move());
+			assertEquals(depth, result.depth());
+		}
+	}
+
+	/**
+	 * A search limited in time must return close to its deadline, however deep it
+	 * might otherwise go, and must return a valid move.
+	 */
+	@Test
+	public final void testTimeLimit() {
+		SimpleChessGame game = RandomGame.standard();
+		long start = System.currentTimeMillis();
+		Move move = minimax.search(game.position(), game.toMove(), SearchLimits.time(200)).best().move();
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue(elapsed < 1000);
+		assertTrue(game.isLegal(move));
+	}
+
+	/**
+	 * A search limited in nodes must stop, having completed at least the first iteration.
+	 */
+	@Test
+	public final void testNodeLimit() {
+		SimpleChessGame game = RandomGame.standard();
+		Move move = minimax.search(game.position(), game.toMove(), 
+		                           new SearchLimits(SearchLimits.NONE, TranspositionTable.MAX_DEPTH, 1000)).best().move();
+		assertTrue(game.isLegal(move));
+	}
+
+	/**
+	 * The best score must be the minimax value found by the naive search, every move
+	 * must be ranked once, and the principal variation of the best move must be playable.
+	 */
+	@Test
+	public final void testRanking() {
+		final MinimaxWithAlphaBeta alphaBeta = new MinimaxWithAlphaBeta(new PositionBoardEstimator(), 3);
+		final NaiveMinimax naive = new NaiveMinimax(new PositionBoardEstimator(), 3);
+		RandomGame.play(RandomGame.standard(), 29, 15, new RandomGame.Check() {
+			public void check(SimpleChessGame game, Random random) {
+				List<Move> moves = game.allValidMoves();
+				SearchResult result = alphaBeta.search(game.position(), game.toMove()),
+				             expected = naive.search(game.position(), game.toMove());
+				assertEquals(expected.best().score(), result.best().score());
+				assertTrue(result.best().isExact());
+				assertEquals(moves.size(), result.ranking().size());
+				for (SearchResult.RankedMove ranked : result.ranking()) {
+					assertTrue(moves.contains(ranked.move()));
+					assertTrue(ranked.score() <= result.best().score());
+				}
+				
+				PersistentPosition line = PersistentPosition.from(game.position());
+				PieceColor toMove = game.toMove();
+				for (Move move : result.best().principalVariation()) {
+					Piece p = line.get(move.from);
+					assertEquals(toMove, p.color());
+					assertTrue(p.validSquares(line, move.from).contains(move.to));
+					line = line.play(move);
+					toMove = toMove.other();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Searching on several threads must find the same best move and score as on one,
+	 * given the same shuffle of the root moves, with every move ranked once, and must
+	 * still stop at its deadline with a valid move.
+	 * Once closed, it must start its threads again for the next search.
+	 */
+	@Test
+	public final void testParallel() {
+		final MinimaxWithAlphaBeta serial = new MinimaxWithAlphaBeta(new PositionBoardEstimator(), 4, 
+		                                                             new TranspositionTable(1), 1, new Random(37)),
+		                           parallel = new MinimaxWithAlphaBeta(new PositionBoardEstimator(), 4, 
+		                                                               new TranspositionTable(1), 4, new Random(37));
+		SimpleChessGame game = RandomGame.play(RandomGame.standard(), 31, 11, new RandomGame.Check() {
+			public void check(SimpleChessGame game, Random random) {
+				List<Move> moves = game.allValidMoves();
+				SearchResult expected = serial.search(game.position(), game.toMove()),
+				             result = parallel.search(game.position(), game.toMove());
+				assertEquals(expected.best().move(), result.best().move());
+				assertEquals(expected.best().score(), result.best().score());
+				assertEquals(expected.best().isExact(), result.best().isExact());
+				assertEquals(moves.size(), result.ranking().size());
+				for (SearchResult.RankedMove ranked : result.ranking())
+					assertTrue(moves.contains(ranked.move()));
+			}
+		});
+		
+		long start = System.currentTimeMillis();
+		Move move = parallel.search(game.position(), game.toMove(), SearchLimits.time(200)).best().move();
+		assertTrue(System.currentTimeMillis() - start < 1000);
+		assertTrue(game.isLegal(move));
+		
+		parallel.close();
+		assertEquals(serial.search(game.position(), game.toMove()).best().score(),
+		             parallel.search(game.position(), game.toMove()).best().score());
+		parallel.close();
+		parallel.close();
+	}
+}
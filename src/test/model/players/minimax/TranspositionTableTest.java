@@ -0,0 +1,63 @@
+package test.model.players.minimax;
+
+import static org.junit.Assert.*;
+
+import model.players.minimax.TranspositionTable;
+import org.junit.*;
+
+/**
+ * Tests the TranspositionTable
+ * @author Sebastian Paaske Trholm
+ */
+public class TranspositionTableTest {
+	private TranspositionTable table;
+	
+	@Before
+	public void setUp() throws Exception {
+		table = new TranspositionTable(1);
+	}
+
+	/**
+	 * What is stored must be found again, with every field intact.
+	 */
+	@Test
+	public final void testStoreProbe() {
+		long key = 0x123456789ABCDEFL;
+		assertEquals(TranspositionTable.MISS, table.probe(key));
+		table.store(key, 5, TranspositionTable.LOWER, -1234, 0xABCDEF);
+		long entry = table.probe(key);
+		assertEquals(5, TranspositionTable.depth(entry));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+		assertEquals(-1234, TranspositionTable.score(entry));
+		assertEquals(0xABCDEF, TranspositionTable.move(entry));
+		assertEquals(TranspositionTable.MISS, table.probe(key ^ 1L << 60)); // same bucket, other position
+	}
+	
+	/**
+	 * A deeper entry must survive shallower results for other positions in its bucket,
+	 * which go to the always-replace entry instead. A deeper result that replaces it
+	 * moves it down to the always-replace entry.
+	 */
+	@Test
+	public final void testReplacement() {
+		long deep = 1, shallow = 1 | 1L << 40, newer = 1 | 1L << 41;
+		table.store(deep, 6, TranspositionTable.EXACT, 10, 0);
+		table.store(shallow, 2, TranspositionTable.EXACT, 20, 0);
+		assertEquals(6, TranspositionTable.depth(table.probe(deep)));
+		assertEquals(20, TranspositionTable.score(table.probe(shallow)));
+		
+		table.store(newer, 3, TranspositionTable.UPPER, 30, 0);
+		assertEquals(6, TranspositionTable.depth(table.probe(deep)));
+		assertEquals(TranspositionTable.MISS, table.probe(shallow));
+		assertEquals(30, TranspositionTable.score(table.probe(newer)));
+		
+		table.store(newer, 7, TranspositionTable.EXACT, 40, 0); // deep enough to take the first entry
+		assertEquals(40, TranspositionTable.score(table.probe(newer)));
+		assertEquals(6, TranspositionTable.depth(table.probe(deep))); // moved to the second entry
+		
+		table.store(shallow, 2, TranspositionTable.EXACT, 50, 0);
+		assertEquals(40, TranspositionTable.score(table.probe(newer)));
+		assertEquals(50, TranspositionTable.score(table.probe(shallow)));
+		assertEquals(TranspositionTable.MISS, table.probe(deep));
+	}
+}
@@ -84,8 +84,8 @@ public class ChessApplicationWindow extends JFrame implements Observer {
 		GameManager gameManager = (GameManager) obs;
 		Game game = gameManager.game;
 		
-		// synchronize display with game state
-		chessBoardPanel.update(game.position());
+		// synchronize display with game state; the snapshot can't change while we draw it
+		chessBoardPanel.update(gameManager.snapshot().position());
 		turnPanel.update(game);
 		moveLogPanel.update(game);
 		